@@ -0,0 +1,319 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Read the pages of an Ogg file without blocking, through an {@link AsynchronousFileChannel}. No thread waits for the
+ * I/O, so many files could be read concurrently by a small thread pool, e.g. the one given to
+ * {@link AsyncOggReader#from(Path, ExecutorService)}.
+ *
+ * <pre>
+ * AsyncOggReader reader = AsyncOggReader.from(path, executor);
+ * reader.forEachPage(page -&gt; ...).whenComplete((pageCount, e) -&gt; reader.close());
+ * </pre>
+ *
+ * <p>The file is read in large blocks into a buffer which is reused by all the operations, and pages are parsed from
+ * it in place. Invalid data between pages is skipped, and the page checksums are handled according to the
+ * {@link CheckSumPolicy}, {@link CheckSumPolicy#TRUSTED} by default.</p>
+ *
+ * <p>Only one operation could be pending at a time, the next one should be started once the future of the previous
+ * one is completed. The futures are completed, and the callbacks called, by the threads of the channel.</p>
+ */
+public class AsyncOggReader implements Closeable {
+    static final int BUFFER_SIZE = 2 * OggPage.MAX_PAGE_SIZE;
+    private final AsynchronousFileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private long filePosition;
+    private boolean endOfFile;
+    private CheckSumPolicy checkSumPolicy = CheckSumPolicy.TRUSTED;
+    private volatile long failedPageCount;
+
+    private AsyncOggReader(AsynchronousFileChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /**
+     * Create {@code AsyncOggReader} from a file, the channel uses the default thread pool.
+     *
+     * @param path path of an Ogg file
+     * @return AsyncOggReader
+     * @throws IOException if the file can't be opened
+     */
+    public static AsyncOggReader from(Path path) throws IOException {
+        return new AsyncOggReader(AsynchronousFileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Create {@code AsyncOggReader} from a file, the channel uses the given thread pool.
+     *
+     * @param path     path of an Ogg file
+     * @param executor the thread pool completing the reads, shared by the readers of many files
+     * @return AsyncOggReader
+     * @throws IOException if the file can't be opened
+     */
+    public static AsyncOggReader from(Path path, ExecutorService executor) throws IOException {
+        return new AsyncOggReader(AsynchronousFileChannel.open(path,
+                Collections.singleton(StandardOpenOption.READ), executor));
+    }
+
+    /**
+     * Create {@code AsyncOggReader} from a channel, which is read from its beginning.
+     *
+     * @param channel the underlying channel
+     * @return AsyncOggReader
+     */
+    public static AsyncOggReader from(AsynchronousFileChannel channel) {
+        return new AsyncOggReader(Objects.requireNonNull(channel));
+    }
+
+    public CheckSumPolicy getCheckSumPolicy() {
+        return checkSumPolicy;
+    }
+
+    /**
+     * Set how the checksums of the following pages are handled.
+     *
+     * @param checkSumPolicy the checksum policy
+     */
+    public void setCheckSumPolicy(CheckSumPolicy checkSumPolicy) {
+        this.checkSumPolicy = Objects.requireNonNull(checkSumPolicy);
+    }
+
+    /**
+     * @return the number of pages whose checksum didn't match their content
+     */
+    public long getFailedPageCount() {
+        return failedPageCount;
+    }
+
+    /**
+     * Read the next Ogg page.
+     *
+     * @return a future of the next Ogg page, or of {@code null} if there isn't page left. It is completed
+     * exceptionally with {@link InvalidOggException} if the checksum doesn't match and the policy is
+     * {@link CheckSumPolicy#STRICT}, with {@link EOFException} if the file ends in the middle of a page, or with
+     * {@link IOException} if an I/O error occurs
+     */
+    public CompletableFuture<OggPage> readPage() {
+        return readPage(OggPageView::toOggPage);
+    }
+
+    /**
+     * Read the next Ogg page into a reused {@link OggPage}, see {@link OggStream#readPage(OggPage)}.
+     *
+     * @param reuse the page to read into
+     * @return a future of {@code reuse}, or of {@code null} if there isn't page left, see
+     * {@link AsyncOggReader#readPage()}
+     */
+    public CompletableFuture<OggPage> readPage(OggPage reuse) {
+        Objects.requireNonNull(reuse);
+        return readPage(view -> {
+            reuse.load(view);
+            return reuse;
+        });
+    }
+
+    /**
+     * Read the pages up to the end of the file, calling the handler for each of them. The page given to the handler
+     * is backed by the reused buffer and only valid during the call, use {@link OggPageView#toOggPage()} to keep it.
+     * Its packets are available through {@link OggPageView#getPacket(int)}.
+     *
+     * @param handler the handler of the pages
+     * @return a future of the number of pages read, completed exceptionally if the handler throws an exception, see
+     * {@link AsyncOggReader#readPage()}
+     */
+    public CompletableFuture<Long> forEachPage(Consumer<OggPageView> handler) {
+        Objects.requireNonNull(handler);
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        if (start(future)) {
+            forEachPage(handler, 0, future);
+        }
+        return future;
+    }
+
+    /**
+     * Get the offset of the next byte to parse in the file. It is only consistent when no operation is pending.
+     *
+     * @return the offset in bytes
+     */
+    public long getPosition() {
+        return filePosition - buffer.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private <T> CompletableFuture<T> readPage(Function<OggPageView, T> mapper) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (start(future)) {
+            readPage(mapper, future);
+        }
+        return future;
+    }
+
+    private <T> void readPage(Function<OggPageView, T> mapper, CompletableFuture<T> future) {
+        T result;
+        try {
+            OggPageView view = parsePage();
+            if (view == null) {
+                if (!endOfFile) {
+                    fill(future, () -> readPage(mapper, future));
+                    return;
+                }
+                if (isTruncated()) {
+                    complete(future, null, new EOFException("Truncated Ogg page"));
+                    return;
+                }
+                result = null;
+            } else {
+                result = mapper.apply(view);
+            }
+        } catch (RuntimeException e) {
+            complete(future, null, e);
+            return;
+        }
+        complete(future, result, null);
+    }
+
+    private void forEachPage(Consumer<OggPageView> handler, long pageCount, CompletableFuture<Long> future) {
+        try {
+            OggPageView view;
+            while ((view = parsePage()) != null) {
+                handler.accept(view);
+                pageCount++;
+            }
+            if (!endOfFile) {
+                long count = pageCount;
+                fill(future, () -> forEachPage(handler, count, future));
+                return;
+            }
+            if (isTruncated()) {
+                complete(future, null, new EOFException("Truncated Ogg page"));
+                return;
+            }
+        } catch (RuntimeException e) {
+            complete(future, null, e);
+            return;
+        }
+        complete(future, pageCount, null);
+    }
+
+    /**
+     * Parse the next complete page in the buffer.
+     *
+     * @return the page, or {@code null} if more data is required
+     */
+    private OggPageView parsePage() {
+        while (true) {
+            int pos = buffer.position();
+            int limit = buffer.limit();
+            int found = OggSync.findCapturePattern(buffer, pos, limit);
+            if (found < 0) {
+                // Keep the bytes that could be the beginning of a capture pattern
+                buffer.position(Math.max(pos, limit - (OggPage.CAPTURE_PATTERN.length - 1)));
+                return null;
+            }
+            buffer.position(found);
+            if (limit - found < OggPage.HEADER_SIZE) {
+                return null;
+            }
+            if (buffer.get(found + 4) != 0) {
+                buffer.position(found + 1);
+                continue;
+            }
+            int segCount = Byte.toUnsignedInt(buffer.get(found + OggPage.HEADER_SIZE - 1));
+            if (limit - found < OggPage.HEADER_SIZE + segCount) {
+                return null;
+            }
+            int pageSize = OggPages.getPageSize(buffer, found);
+            if (limit - found < pageSize) {
+                return null;
+            }
+            OggPageView view = OggPageView.wrap(buffer, found);
+            if (checkSumPolicy != CheckSumPolicy.TRUSTED && !view.isCheckSumValid()) {
+                failedPageCount++;
+                if (checkSumPolicy == CheckSumPolicy.STRICT) {
+                    buffer.position(found + pageSize);
+                    throw new InvalidOggException("Ogg page checksum mismatch");
+                }
+                // Resync from the byte right after the 'O' of the rejected capture pattern
+                buffer.position(found + 1);
+                continue;
+            }
+            buffer.position(found + pageSize);
+            return view;
+        }
+    }
+
+    /**
+     * Check whether the bytes left at the end of the file begin with a capture pattern, i.e. a page is cut off.
+     */
+    private boolean isTruncated() {
+        int pos = buffer.position();
+        return buffer.limit() - pos >= OggPage.CAPTURE_PATTERN.length
+                && OggSync.findCapturePattern(buffer, pos, pos + 1) == pos;
+    }
+
+    /**
+     * Read the next block of the file after the bytes left in the buffer, then continue.
+     */
+    private void fill(CompletableFuture<?> future, Runnable continuation) {
+        buffer.compact();
+        channel.read(buffer, filePosition, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer read, Void attachment) {
+                buffer.flip();
+                if (read < 0) {
+                    endOfFile = true;
+                } else {
+                    filePosition += read;
+                }
+                continuation.run();
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                buffer.flip();
+                complete(future, null, e);
+            }
+        });
+    }
+
+    private boolean start(CompletableFuture<?> future) {
+        if (!pending.compareAndSet(false, true)) {
+            future.completeExceptionally(new IllegalStateException("Another operation is pending"));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Complete an operation, so that the next one could be started by the dependents of the future.
+     */
+    private <T> void complete(CompletableFuture<T> future, T result, Throwable e) {
+        pending.set(false);
+        if (e == null) {
+            future.complete(result);
+        } else {
+            future.completeExceptionally(e);
+        }
+    }
+}
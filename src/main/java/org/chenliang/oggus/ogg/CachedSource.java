@@ -0,0 +1,58 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A seekable {@link OggSource} reading a file through an {@link OggBlockCache}. The window is filled by copying the
+ * cached blocks, the file is only read on a miss.
+ */
+class CachedSource extends PositionedSource {
+    private final FileChannel channel;
+    private final OggBlockCache cache;
+    private final Object file;
+    private final long size;
+
+    CachedSource(Path path, OggBlockCache cache) throws IOException {
+        super(2 * OggPage.MAX_PAGE_SIZE);
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.cache = cache;
+        try {
+            this.file = OggBlockCache.identify(path);
+            this.size = channel.size();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Copy the rest of the cached block at the position, as much as the buffer holds.
+     */
+    @Override
+    int read(ByteBuffer dst, long position) throws IOException {
+        long blockOffset = position - position % OggBlockCache.BLOCK_SIZE;
+        byte[] block = cache.getBlock(file, channel, blockOffset);
+        int from = (int) (position - blockOffset);
+        if (from >= block.length) {
+            // The file has been truncated
+            return -1;
+        }
+        int length = Math.min(block.length - from, dst.remaining());
+        dst.put(block, from, length);
+        return length;
+    }
+
+    @Override
+    long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,91 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * An {@link OggSource} reading a {@link ReadableByteChannel} in large blocks into a reusable direct buffer. The
+ * source is seekable if the channel is a {@link SeekableByteChannel}.
+ */
+class ChannelSource extends OggSource {
+    static final int DEFAULT_CAPACITY = 2 * OggPage.MAX_PAGE_SIZE;
+    private final ReadableByteChannel channel;
+    private boolean eof;
+
+    /**
+     * @param channel  the channel to read
+     * @param position the current position of the channel, the offset of the next byte read in the source
+     */
+    ChannelSource(ReadableByteChannel channel, long position) {
+        this(channel, position, DEFAULT_CAPACITY);
+    }
+
+    ChannelSource(ReadableByteChannel channel, long position, int capacity) {
+        if (capacity < OggPage.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.channel = channel;
+        this.base = position;
+        this.buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.limit(0);
+    }
+
+    @Override
+    boolean fill(int n) throws IOException {
+        if (available() >= n) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        buffer.position(pos);
+        buffer.compact();
+        base += pos;
+        pos = 0;
+        while (buffer.position() < n) {
+            if (channel.read(buffer) < 0) {
+                eof = true;
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.limit() >= n;
+    }
+
+    @Override
+    boolean isSeekable() {
+        return channel instanceof SeekableByteChannel;
+    }
+
+    @Override
+    long size() throws IOException {
+        if (!isSeekable()) {
+            return super.size();
+        }
+        return ((SeekableByteChannel) channel).size();
+    }
+
+    @Override
+    void seek(long position) throws IOException {
+        if (!isSeekable()) {
+            super.seek(position);
+        }
+        if (position >= base && position <= base + buffer.limit()) {
+            pos = (int) (position - base);
+            return;
+        }
+        ((SeekableByteChannel) channel).position(position);
+        buffer.clear().limit(0);
+        base = position;
+        pos = 0;
+        eof = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,13 @@
+package org.chenliang.oggus.ogg;
+
+/**
+ * How {@link OggStream} handles the {@code CRC_checksum} field of the pages it reads:
+ * <ul>
+ *    <li>STRICT: verify every page, throw {@link InvalidOggException} on mismatch</li>
+ *    <li>LENIENT: verify every page, drop a mismatched page and resync right after its capture pattern</li>
+ *    <li>TRUSTED: don't verify, fastest for data from a trusted origin</li>
+ * </ul>
+ */
+public enum CheckSumPolicy {
+    STRICT, LENIENT, TRUSTED
+}
@@ -0,0 +1,102 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An {@link OggSource} reading an {@link InputStream} in large blocks into a heap buffer, which grows up to the size
+ * of the largest page.
+ */
+class InputStreamSource extends OggSource {
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+    private final InputStream in;
+    private boolean eof;
+
+    InputStreamSource(InputStream in) {
+        this.in = in;
+        this.buffer = ByteBuffer.allocate(INITIAL_CAPACITY).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.limit(0);
+    }
+
+    @Override
+    boolean fill(int n) throws IOException {
+        if (available() >= n) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        compact(n);
+        byte[] array = buffer.array();
+        int limit = buffer.limit();
+        while (limit - pos < n) {
+            int read = in.read(array, limit, buffer.capacity() - limit);
+            if (read < 0) {
+                eof = true;
+                break;
+            }
+            limit += read;
+        }
+        buffer.limit(limit);
+        return limit - pos >= n;
+    }
+
+    @Override
+    boolean skipBytes(long n) throws IOException {
+        if (n <= available()) {
+            skip((int) n);
+            return true;
+        }
+        long remaining = n - available();
+        base += buffer.limit();
+        pos = 0;
+        buffer.limit(0);
+        // skip() may also go past the end without telling, e.g. FileInputStream, so the last byte is read
+        while (remaining > 1 && !eof) {
+            long skipped = in.skip(remaining - 1);
+            if (skipped <= 0) {
+                // skip() may stop early without being at the end, read to tell
+                if (in.read() < 0) {
+                    eof = true;
+                    break;
+                }
+                skipped = 1;
+            }
+            base += skipped;
+            remaining -= skipped;
+        }
+        if (remaining == 1 && !eof) {
+            if (in.read() < 0) {
+                eof = true;
+            } else {
+                base++;
+                remaining--;
+            }
+        }
+        return remaining == 0;
+    }
+
+    /**
+     * Move the available bytes to the start of the buffer, growing it if it can't hold {@code n} bytes.
+     */
+    private void compact(int n) {
+        int available = available();
+        ByteBuffer dst = buffer;
+        if (buffer.capacity() < n) {
+            dst = ByteBuffer.allocate(Math.max(n, Math.min(buffer.capacity() * 2, OggPage.MAX_PAGE_SIZE)))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        System.arraycopy(buffer.array(), pos, dst.array(), 0, available);
+        dst.limit(available);
+        buffer = dst;
+        base += pos;
+        pos = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
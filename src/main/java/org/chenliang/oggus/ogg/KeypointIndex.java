@@ -0,0 +1,132 @@
+package org.chenliang.oggus.ogg;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keypoints recorded by {@link OggStream} while pages are read, so that seeking back to data already read doesn't
+ * need a search.
+ *
+ * <p>Each logical stream keeps at most {@code capacity} keypoints in primitive arrays, about 20 bytes each, grown as
+ * keypoints are added. When they are full, every other keypoint is dropped and the minimum distance between two
+ * keypoints is raised to the average distance of the remaining ones, so the keypoints stay evenly spread over the
+ * bytes read.</p>
+ */
+class KeypointIndex {
+    private static final int INITIAL_CAPACITY = 16;
+    private final int capacity;
+    private final Map<Long, Keypoints> streams = new HashMap<>();
+
+    KeypointIndex(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Record a page read, pages before the last keypoint of the logical stream are ignored.
+     *
+     * @param offset the offset right after the page
+     */
+    void record(long serialNum, long granulePosition, long seqNum, long offset) {
+        if (granulePosition == -1) {
+            return;
+        }
+        Keypoints keypoints = streams.computeIfAbsent(serialNum, k -> new Keypoints(capacity));
+        int count = keypoints.count;
+        if (count > 0) {
+            long lastOffset = keypoints.offsets[count - 1];
+            if (offset - lastOffset < Math.max(1, keypoints.spacing)
+                    || granulePosition < keypoints.granulePositions[count - 1]) {
+                return;
+            }
+        }
+        if (count == capacity) {
+            keypoints.thin();
+        }
+        keypoints.add(granulePosition, seqNum, offset);
+    }
+
+    int getCount(long serialNum) {
+        Keypoints keypoints = streams.get(serialNum);
+        return keypoints == null ? 0 : keypoints.count;
+    }
+
+    long getGranulePosition(long serialNum, int keypoint) {
+        return streams.get(serialNum).granulePositions[keypoint];
+    }
+
+    long getSeqNum(long serialNum, int keypoint) {
+        return Integer.toUnsignedLong(streams.get(serialNum).seqNums[keypoint]);
+    }
+
+    long getOffset(long serialNum, int keypoint) {
+        return streams.get(serialNum).offsets[keypoint];
+    }
+
+    /**
+     * @return the index of the last keypoint whose granule position is less than the given one, or -1 if there
+     * isn't any
+     */
+    int find(long serialNum, long granulePosition) {
+        Keypoints keypoints = streams.get(serialNum);
+        if (keypoints == null) {
+            return -1;
+        }
+        int low = 0;
+        int high = keypoints.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (keypoints.granulePositions[mid] < granulePosition) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private static class Keypoints {
+        private final int capacity;
+        private long[] granulePositions;
+        private long[] offsets;
+        private int[] seqNums;
+        private int count;
+        private long spacing;
+
+        Keypoints(int capacity) {
+            this.capacity = capacity;
+            int length = Math.min(capacity, INITIAL_CAPACITY);
+            granulePositions = new long[length];
+            offsets = new long[length];
+            seqNums = new int[length];
+        }
+
+        void add(long granulePosition, long seqNum, long offset) {
+            if (count == offsets.length) {
+                int length = (int) Math.min(capacity, 2L * count);
+                granulePositions = Arrays.copyOf(granulePositions, length);
+                offsets = Arrays.copyOf(offsets, length);
+                seqNums = Arrays.copyOf(seqNums, length);
+            }
+            granulePositions[count] = granulePosition;
+            offsets[count] = offset;
+            seqNums[count] = (int) seqNum;
+            count++;
+        }
+
+        void thin() {
+            int kept = 0;
+            for (int i = 0; i < count; i += 2) {
+                granulePositions[kept] = granulePositions[i];
+                offsets[kept] = offsets[i];
+                seqNums[kept] = seqNums[i];
+                kept++;
+            }
+            count = kept;
+            spacing = count > 1 ? (offsets[count - 1] - offsets[0]) / (count - 1) : spacing * 2;
+        }
+    }
+}
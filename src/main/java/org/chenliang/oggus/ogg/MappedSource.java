@@ -0,0 +1,86 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An {@link OggSource} over a memory-mapped file.
+ *
+ * <p>A single mapping is limited to 2 GB, so the file is mapped through a sliding window. When a request crosses
+ * the end of the window, a new window is mapped starting at the current position, hence a page is always contiguous
+ * in one window and files of any size are supported.</p>
+ */
+class MappedSource extends OggSource {
+    static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+
+    MappedSource(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedSource(Path path, int windowSize) throws IOException {
+        if (windowSize < OggPage.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.windowSize = windowSize;
+        try {
+            this.size = channel.size();
+            map(0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    boolean fill(int n) throws IOException {
+        if (available() >= n) {
+            return true;
+        }
+        long position = position();
+        if (base + buffer.limit() < size) {
+            map(position);
+        }
+        return available() >= n;
+    }
+
+    private void map(long position) throws IOException {
+        long length = Math.min(windowSize, size - position);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+        base = position;
+        pos = 0;
+    }
+
+    @Override
+    boolean isSeekable() {
+        return true;
+    }
+
+    @Override
+    long size() {
+        return size;
+    }
+
+    @Override
+    void seek(long position) throws IOException {
+        if (position < 0 || position > size) {
+            throw new IllegalArgumentException("Invalid position: " + position);
+        }
+        if (position >= base && position <= base + buffer.limit()) {
+            pos = (int) (position - base);
+        } else {
+            map(position);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,266 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of the bytes of Ogg files, shared by the streams reading them, see {@link OggStream#from(Path,
+ * OggBlockCache)}. Streams seeking into the same files then read and scan their pages from memory.
+ *
+ * <p>Files are cached in aligned blocks of {@link #BLOCK_SIZE} bytes, keyed by the identity of the file and the
+ * offset of the block. A file is identified by its file key, or its real path, along with its size and modification
+ * time, so the blocks of a modified file are no longer used. The least recently used blocks are evicted to keep the
+ * cached bytes within the capacity.</p>
+ *
+ * <p>The cache is thread-safe. It is split into segments with their own lock, so concurrent lookups rarely contend.
+ * The capacity is shared by the segments: while it is exceeded, the least recently used block among the eldest
+ * blocks of the segments is evicted. Two streams missing the same block may both read it.</p>
+ */
+public class OggBlockCache {
+    public static final int BLOCK_SIZE = 64 * 1024;
+    public static final long DEFAULT_SHARED_CAPACITY = 64L * 1024 * 1024;
+    private static final int SEGMENT_COUNT = 16;
+    private static final OggBlockCache SHARED = new OggBlockCache(DEFAULT_SHARED_CAPACITY);
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private volatile long capacity;
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private OggBlockCache(long capacity) {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+        setCapacity(capacity);
+    }
+
+    /**
+     * Create a cache with a given capacity.
+     *
+     * @param capacity the max number of bytes cached
+     * @return OggBlockCache
+     */
+    public static OggBlockCache of(long capacity) {
+        return new OggBlockCache(capacity);
+    }
+
+    /**
+     * @return the cache shared by the whole process, of {@link #DEFAULT_SHARED_CAPACITY} bytes unless changed with
+     * {@link #setCapacity(long)}
+     */
+    public static OggBlockCache shared() {
+        return SHARED;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Set the max number of bytes cached, blocks are evicted if the cache is larger.
+     *
+     * @param capacity the max number of bytes cached
+     */
+    public void setCapacity(long capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        evict(capacity);
+    }
+
+    /**
+     * @return the number of bytes cached
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * @return the number of blocks read from the cache
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of blocks read from files
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return the number of blocks evicted to keep the cache within its capacity
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Evict all the blocks, the statistics are kept.
+     */
+    public void clear() {
+        evict(0);
+    }
+
+    /**
+     * @return the identity of a file in the cache
+     */
+    static Object identify(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Object fileKey = attributes.fileKey() != null ? attributes.fileKey() : path.toRealPath();
+        return new FileIdentity(fileKey, attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * Get a block of a file, read from the channel on a miss.
+     *
+     * @param file    the identity of the file
+     * @param channel the channel of the file, only read by absolute position
+     * @param offset  the offset of the block, a multiple of {@link #BLOCK_SIZE}
+     * @return the bytes of the block, shorter than {@link #BLOCK_SIZE} at the end of the file
+     * @throws IOException if an I/O error occurs
+     */
+    byte[] getBlock(Object file, FileChannel channel, long offset) throws IOException {
+        BlockKey key = new BlockKey(file, offset);
+        Segment segment = segments[(key.hashCode() & Integer.MAX_VALUE) % SEGMENT_COUNT];
+        synchronized (segment) {
+            Block block = segment.blocks.get(key);
+            if (block != null) {
+                block.lastAccess = clock.incrementAndGet();
+                hitCount.incrementAndGet();
+                return block.data;
+            }
+        }
+        missCount.incrementAndGet();
+        Block block = new Block(readBlock(channel, offset), clock.incrementAndGet());
+        synchronized (segment) {
+            Block previous = segment.blocks.put(key, block);
+            size.addAndGet(block.data.length - (previous == null ? 0 : previous.data.length));
+        }
+        // Not holding the lock of the segment, the eviction locks the segments one at a time
+        evict(capacity);
+        return block.data;
+    }
+
+    /**
+     * Evict blocks until the cached bytes are within the capacity. The eldest block of each segment is its least
+     * recently used, the oldest of them is evicted.
+     */
+    private void evict(long capacity) {
+        while (size.get() > capacity) {
+            Segment eldest = null;
+            long eldestAccess = Long.MAX_VALUE;
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    Iterator<Block> iterator = segment.blocks.values().iterator();
+                    if (iterator.hasNext()) {
+                        long lastAccess = iterator.next().lastAccess;
+                        if (lastAccess < eldestAccess) {
+                            eldest = segment;
+                            eldestAccess = lastAccess;
+                        }
+                    }
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            synchronized (eldest) {
+                Iterator<Block> iterator = eldest.blocks.values().iterator();
+                if (iterator.hasNext()) {
+                    size.addAndGet(-iterator.next().data.length);
+                    iterator.remove();
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static byte[] readBlock(FileChannel channel, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(BLOCK_SIZE, channel.size() - offset)));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.position() == buffer.capacity() ? buffer.array()
+                : Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static class Segment {
+        // In access order, the eldest block is the least recently used
+        private final LinkedHashMap<BlockKey, Block> blocks = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private static class Block {
+        private final byte[] data;
+        // The tick of the cache clock at the last access, guarded by the lock of the segment
+        private long lastAccess;
+
+        private Block(byte[] data, long lastAccess) {
+            this.data = data;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static class FileIdentity {
+        private final Object fileKey;
+        private final long size;
+        private final long lastModified;
+
+        private FileIdentity(Object fileKey, long size, long lastModified) {
+            this.fileKey = fileKey;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FileIdentity)) return false;
+            FileIdentity that = (FileIdentity) o;
+            return size == that.size && lastModified == that.lastModified && fileKey.equals(that.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fileKey, size, lastModified);
+        }
+    }
+
+    private static class BlockKey {
+        private final Object file;
+        private final long offset;
+
+        private BlockKey(Object file, long offset) {
+            this.file = file;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BlockKey)) return false;
+            BlockKey that = (BlockKey) o;
+            return offset == that.offset && file.equals(that.file);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * file.hashCode() + Long.hashCode(offset);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Demultiplex the logical streams of an {@link OggStream} in a single pass: each page is dispatched to the handler of
+ * its logical stream, and the payloads of the pages of logical streams without a handler are skipped, unless the
+ * checksums are verified, see {@link OggStream#readPageView(Predicate)}.
+ *
+ * <p>New logical streams are discovered through their BOS pages, a {@link StreamListener} could add a handler for
+ * them, which receives the BOS page too:</p>
+ *
+ * <pre>
+ * OggDemuxer demuxer = new OggDemuxer(oggStream);
+ * demuxer.setStreamListener((bosPage, d) -&gt; d.addHandler(bosPage.getSerialNum(), page -&gt; ...));
+ * demuxer.demux();
+ * </pre>
+ *
+ * <p>The pages given to the handlers are only valid during the call, unless the stream is memory-mapped, see
+ * {@link OggStream#readPageView()}. Use {@link OggPageView#toOggPage()} to keep them, e.g. in a queue.</p>
+ */
+public class OggDemuxer {
+    private final OggStream oggStream;
+    private final Map<Long, PageHandler> handlers = new HashMap<>();
+    private StreamListener streamListener;
+    private long dispatchedPageCount;
+
+    /**
+     * @param oggStream the stream to demultiplex
+     */
+    public OggDemuxer(OggStream oggStream) {
+        this.oggStream = Objects.requireNonNull(oggStream);
+    }
+
+    /**
+     * Set the listener of the BOS pages, which is called before the page is dispatched.
+     *
+     * @param streamListener the listener, or {@code null}
+     */
+    public void setStreamListener(StreamListener streamListener) {
+        this.streamListener = streamListener;
+    }
+
+    /**
+     * Add the handler of a logical stream, replacing the previous one if any.
+     *
+     * @param serialNum the serial number of the logical stream
+     * @param handler   the handler of its pages
+     */
+    public void addHandler(long serialNum, PageHandler handler) {
+        handlers.put(serialNum, Objects.requireNonNull(handler));
+    }
+
+    /**
+     * Remove the handler of a logical stream, the payloads of its following pages are skipped.
+     *
+     * @param serialNum the serial number of the logical stream
+     */
+    public void removeHandler(long serialNum) {
+        handlers.remove(serialNum);
+    }
+
+    /**
+     * @return the number of pages dispatched to a handler
+     */
+    public long getDispatchedPageCount() {
+        return dispatchedPageCount;
+    }
+
+    /**
+     * Read the next page with a handler, or a BOS page if there is a stream listener, and dispatch it.
+     *
+     * @return false if there isn't page left
+     * @throws IOException if an I/O error occurs or is thrown by a handler
+     */
+    public boolean demuxPage() throws IOException {
+        OggPageView page = oggStream.readPageView(header -> handlers.containsKey(header.getSerialNum())
+                || header.isBOS() && streamListener != null);
+        if (page == null) {
+            return false;
+        }
+        long serialNum = page.getSerialNum();
+        if (page.isBOS() && streamListener != null) {
+            streamListener.onStream(page, this);
+        }
+        PageHandler handler = handlers.get(serialNum);
+        if (handler != null) {
+            handler.onPage(page);
+            dispatchedPageCount++;
+        }
+        return true;
+    }
+
+    /**
+     * Read and dispatch the pages up to the end of the stream.
+     *
+     * @throws IOException if an I/O error occurs or is thrown by a handler
+     */
+    public void demux() throws IOException {
+        while (demuxPage()) {
+            // dispatched
+        }
+    }
+
+    /**
+     * Handle the pages of a logical stream.
+     */
+    public interface PageHandler {
+        void onPage(OggPageView page) throws IOException;
+    }
+
+    /**
+     * Discover the logical streams by their BOS pages.
+     */
+    public interface StreamListener {
+        /**
+         * @param bosPage the BOS page of a logical stream
+         * @param demuxer the demuxer, to add a handler of the logical stream
+         */
+        void onStream(OggPageView bosPage, OggDemuxer demuxer) throws IOException;
+    }
+}
@@ -0,0 +1,160 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable index of the pages of an Ogg file, built with a single pass over their headers, along with a channel
+ * of the file shared by the streams reading it.
+ *
+ * <p>The index is safe for concurrent use: each listener of the file reads it through its own cursor, a lightweight
+ * {@link OggStream} created by {@link OggStream#from(OggFileIndex)}, which does positioned reads on the shared channel
+ * and seeks with the shared index. The file is opened and scanned once however many cursors read it, each cursor
+ * only holds a read buffer of a page or so.</p>
+ *
+ * <pre>
+ * OggFileIndex index = OggFileIndex.open(path);
+ * // On each thread
+ * try (OggOpusStream stream = OggOpusStream.from(index)) { ... }
+ * </pre>
+ *
+ * <p>Closing the index closes the channel, the cursors can't read anymore then.</p>
+ */
+public final class OggFileIndex implements Closeable {
+    private final FileChannel channel;
+    private final long size;
+    private final long[] offsets;
+    private final int[] pageSizes;
+    private final long[] granulePositions;
+    private final int[] serialNums;
+    private final OggSeekIndex seekIndex;
+
+    private OggFileIndex(FileChannel channel, long size, int pageCount, long[] offsets, int[] pageSizes,
+                         long[] granulePositions, int[] serialNums) {
+        this.channel = channel;
+        this.size = size;
+        this.offsets = Arrays.copyOf(offsets, pageCount);
+        this.pageSizes = Arrays.copyOf(pageSizes, pageCount);
+        this.granulePositions = Arrays.copyOf(granulePositions, pageCount);
+        this.serialNums = Arrays.copyOf(serialNums, pageCount);
+        // Every page with a granule position is a keypoint, so a seek only reads the page after the keypoint
+        Map<Long, List<long[]>> keypoints = new LinkedHashMap<>();
+        for (int i = 0; i < pageCount; i++) {
+            if (granulePositions[i] != -1) {
+                keypoints.computeIfAbsent(getSerialNum(i), serialNum -> new ArrayList<>())
+                        .add(new long[]{granulePositions[i], offsets[i] + pageSizes[i]});
+            }
+        }
+        this.seekIndex = OggSeekIndex.of(keypoints, 0, size);
+    }
+
+    /**
+     * Open an Ogg file and index its pages. Invalid data between pages is skipped, and a truncated last page, e.g.
+     * of a capture still being written, isn't indexed.
+     *
+     * @param path path of an Ogg file
+     * @return OggFileIndex
+     * @throws IOException if an I/O error occurs
+     */
+    public static OggFileIndex open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            int pageCount = 0;
+            long[] offsets = new long[64];
+            int[] pageSizes = new int[64];
+            long[] granulePositions = new long[64];
+            int[] serialNums = new int[64];
+            OggStream oggStream = new OggStream(new SharedChannelSource(channel, size));
+            OggPageHeader header;
+            while ((header = skimPage(oggStream)) != null) {
+                if (pageCount == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, pageCount * 2);
+                    pageSizes = Arrays.copyOf(pageSizes, pageCount * 2);
+                    granulePositions = Arrays.copyOf(granulePositions, pageCount * 2);
+                    serialNums = Arrays.copyOf(serialNums, pageCount * 2);
+                }
+                offsets[pageCount] = header.getOffset();
+                pageSizes[pageCount] = header.getPageSize();
+                granulePositions[pageCount] = header.getGranulePosition();
+                serialNums[pageCount] = (int) header.getSerialNum();
+                pageCount++;
+            }
+            return new OggFileIndex(channel, size, pageCount, offsets, pageSizes, granulePositions, serialNums);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the header of the next page, or {@code null} if there isn't page left or the last page is truncated
+     */
+    private static OggPageHeader skimPage(OggStream oggStream) throws IOException {
+        try {
+            return oggStream.skimPage();
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the size of the indexed file
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public int getPageCount() {
+        return offsets.length;
+    }
+
+    /**
+     * @return the offset of the page in the file
+     */
+    public long getOffset(int page) {
+        return offsets[page];
+    }
+
+    public int getPageSize(int page) {
+        return pageSizes[page];
+    }
+
+    public long getGranulePosition(int page) {
+        return granulePositions[page];
+    }
+
+    public long getSerialNum(int page) {
+        return Integer.toUnsignedLong(serialNums[page]);
+    }
+
+    /**
+     * @return the seek index of the file, made of all the pages with a granule position
+     */
+    public OggSeekIndex getSeekIndex() {
+        return seekIndex;
+    }
+
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Close the shared channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,13 +1,13 @@
 package org.chenliang.oggus.ogg;
 
-import org.chenliang.oggus.util.LittleEndianDataOutputStream;
-import org.chenliang.oggus.util.Bytes;
 import org.chenliang.oggus.util.CRCUtil;
+import org.chenliang.oggus.util.Preconditions;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -37,10 +37,19 @@ import java.util.List;
  *
  * <p>Create a new OggPage object with static method: {@link OggPage#empty()}. Call set...() methods to set fields of
  * Ogg page.
+ *
+ * <p>The checksum is cached once calculated, the set...() and add...() methods reset it.</p>
+ *
+ * <p>The data packets are stored back to back in a payload array, located by offset and length. An {@code OggPage}
+ * could be reused with {@link OggPage#reset()} or {@link OggStream#readPage(OggPage)}, its arrays grow to the size
+ * of the largest page but never shrink, so reading pages doesn't allocate once they are large enough.</p>
  */
 public class OggPage {
     public static final byte[] CAPTURE_PATTERN = {'O', 'g', 'g', 'S'};
     public static final int MAX_LACE_VALUE = 255;
+    public static final int HEADER_SIZE = 27;
+    public static final int CHECKSUM_OFFSET = 22;
+    public static final int MAX_PAGE_SIZE = HEADER_SIZE + 255 + 255 * MAX_LACE_VALUE;
     private int version = 0;
     private int flag = 0x00;
     private long granulePosition;
@@ -48,7 +57,12 @@ public class OggPage {
     private long seqNum;
     private int checkSum;
     private byte[] laceValues = new byte[0];
-    private final List<byte[]> dataPackets = new LinkedList<>();
+    private int segCount;
+    private byte[] payload = new byte[0];
+    private int payloadLength;
+    private int[] packetOffsets = new int[0];
+    private int[] packetLengths = new int[0];
+    private int packetCount;
 
     private OggPage() {
     }
@@ -60,6 +74,61 @@ public class OggPage {
         return new OggPage();
     }
 
+    /**
+     * Clear all the fields of this page, keeping its arrays to be reused.
+     */
+    public void reset() {
+        version = 0;
+        flag = 0x00;
+        granulePosition = 0;
+        serialNum = 0;
+        seqNum = 0;
+        checkSum = 0;
+        segCount = 0;
+        payloadLength = 0;
+        packetCount = 0;
+    }
+
+    /**
+     * Copy a serialized page into this page, reusing its arrays.
+     */
+    void load(OggPageView view) {
+        reset();
+        flag = view.getFlag();
+        granulePosition = view.getGranulePosition();
+        serialNum = view.getSerialNum();
+        seqNum = view.getSeqNum();
+        int segCount = view.getSegCount();
+        int payloadLength = view.getPayloadLength();
+        ensureSegCapacity(segCount);
+        ensurePayloadCapacity(payloadLength);
+        ByteBuffer buffer = view.getBuffer();
+        int index = view.getIndex() + HEADER_SIZE;
+        if (buffer.hasArray()) {
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + index, laceValues, 0, segCount);
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + index + segCount, payload, 0, payloadLength);
+        } else {
+            ByteBuffer src = buffer.duplicate();
+            src.limit(index + segCount + payloadLength).position(index);
+            src.get(laceValues, 0, segCount);
+            src.get(payload, 0, payloadLength);
+        }
+        this.segCount = segCount;
+        this.payloadLength = payloadLength;
+        int packetOffset = 0;
+        int packetLength = 0;
+        for (int i = 0; i < segCount; i++) {
+            int segLen = Byte.toUnsignedInt(laceValues[i]);
+            packetLength += segLen;
+            if (segLen < MAX_LACE_VALUE || i == segCount - 1) {
+                addPacket(packetOffset, packetLength);
+                packetOffset += packetLength;
+                packetLength = 0;
+            }
+        }
+        checkSum = view.getCheckSum();
+    }
+
     /**
      * Get the Ogg page spec version, currently only version 0 is supported.
      *
@@ -77,6 +146,7 @@ public class OggPage {
      */
     public void setFlag(int flag) {
         this.flag = flag & 0x07;
+        checkSum = 0;
     }
 
     /**
@@ -93,6 +163,7 @@ public class OggPage {
      */
     public void setContinued() {
         flag = flag | 0x01;
+        checkSum = 0;
     }
 
     /**
@@ -109,6 +180,7 @@ public class OggPage {
      */
     public void setBOS() {
         flag = flag | 0x02;
+        checkSum = 0;
     }
 
     /**
@@ -125,6 +197,7 @@ public class OggPage {
      */
     public void setEOS() {
         flag = flag | 0x04;
+        checkSum = 0;
     }
 
     public long getGranulePosition() {
@@ -133,6 +206,7 @@ public class OggPage {
 
     public void setGranulePosition(long granulePosition) {
         this.granulePosition = granulePosition;
+        checkSum = 0;
     }
 
     public long getSerialNum() {
@@ -141,6 +215,7 @@ public class OggPage {
 
     public void setSerialNum(long serialNum) {
         this.serialNum = serialNum;
+        checkSum = 0;
     }
 
     public long getSeqNum() {
@@ -149,6 +224,7 @@ public class OggPage {
 
     public void setSeqNum(long seqNum) {
         this.seqNum = seqNum;
+        checkSum = 0;
     }
 
     /**
@@ -158,8 +234,11 @@ public class OggPage {
      */
     public int getCheckSum() {
         if (checkSum == 0) {
-            byte[] dataDump = dump0();
-            checkSum = CRCUtil.getCRC(dataDump);
+            byte[] header = new byte[HEADER_SIZE];
+            writeHeader(ByteBuffer.wrap(header), 0, 0);
+            int crc = CRCUtil.update(0, header, 0, HEADER_SIZE);
+            crc = CRCUtil.update(crc, laceValues, 0, segCount);
+            checkSum = CRCUtil.update(crc, payload, 0, payloadLength);
         }
         return checkSum;
     }
@@ -173,11 +252,22 @@ public class OggPage {
     }
 
     public int getSegCount() {
-        return laceValues != null ? laceValues.length : 0;
+        return segCount;
     }
 
+    /**
+     * Get a copy of the lace values. The lace values are stored in a reused array, so modifying the copy doesn't
+     * modify this page, use {@link OggPage#getLaceValue(int)} to read a lace value without copying.
+     *
+     * @return a copy of the lace values
+     */
     public byte[] getLaceValues() {
-        return laceValues;
+        return Arrays.copyOf(laceValues, segCount);
+    }
+
+    public int getLaceValue(int segment) {
+        checkIndex(segment, segCount);
+        return Byte.toUnsignedInt(laceValues[segment]);
     }
 
     /**
@@ -186,7 +276,7 @@ public class OggPage {
      * @return true if the last data packet is completed in this page.
      */
     public boolean isCompleted() {
-        return Byte.toUnsignedInt(laceValues[getSegCount() - 1]) < MAX_LACE_VALUE;
+        return segCount > 0 && Byte.toUnsignedInt(laceValues[segCount - 1]) < MAX_LACE_VALUE;
     }
 
     /**
@@ -195,8 +285,19 @@ public class OggPage {
      * @param data the binary byte array of a data packet.
      */
     public void addDataPacket(byte[] data) {
-        laceValues = Bytes.concat(laceValues, lenToLaceValues(data.length, false));
-        dataPackets.add(data);
+        addDataPacket(data, 0, data.length);
+    }
+
+    /**
+     * Add a data packet from a range of an array, which is copied. The lace values of this data packet are
+     * automatically generated.
+     *
+     * @param data   the array holding the data packet
+     * @param offset the offset of the data packet in {@code data}
+     * @param length the length of the data packet
+     */
+    public void addDataPacket(byte[] data, int offset, int length) {
+        addPacket(data, offset, length, false);
     }
 
     /**
@@ -211,12 +312,74 @@ public class OggPage {
         if (data.length % 255 != 0) {
             throw new InvalidOggException("Not a partial data packet");
         }
-        laceValues = Bytes.concat(laceValues, lenToLaceValues(data.length, true));
-        dataPackets.add(data);
+        addPacket(data, 0, data.length, true);
     }
 
+    /**
+     * Get copies of the data packets, including a trailing partial packet. The packets are stored in a reused payload
+     * array, so each call returns new copies in an unmodifiable list, and modifying them doesn't modify this page.
+     * Use {@link OggPage#addDataPacket(byte[])} to add a packet, and {@link OggPage#getPayload()} to access the data
+     * packets without copying them.
+     *
+     * @return the data packets
+     */
     public List<byte[]> getDataPackets() {
-        return dataPackets;
+        List<byte[]> dataPackets = new ArrayList<>(packetCount);
+        for (int i = 0; i < packetCount; i++) {
+            dataPackets.add(Arrays.copyOfRange(payload, packetOffsets[i], packetOffsets[i] + packetLengths[i]));
+        }
+        return Collections.unmodifiableList(dataPackets);
+    }
+
+    /**
+     * @return the number of data packets, including a trailing partial packet
+     */
+    public int getPacketCount() {
+        return packetCount;
+    }
+
+    /**
+     * @param packet the index of the data packet
+     * @return the offset of the data packet in {@link OggPage#getPayload()}
+     */
+    public int getPacketOffset(int packet) {
+        checkIndex(packet, packetCount);
+        return packetOffsets[packet];
+    }
+
+    /**
+     * @param packet the index of the data packet
+     * @return the length of the data packet in bytes
+     */
+    public int getPacketLength(int packet) {
+        checkIndex(packet, packetCount);
+        return packetLengths[packet];
+    }
+
+    /**
+     * Get the array holding the data packets back to back, it may be longer than the payload and is reused when this
+     * page is reused.
+     *
+     * @return the payload array, which must not be modified
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return the length of the payload in bytes, that is the sum of the lengths of the data packets
+     */
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * Get the size of the dumped binary of this page.
+     *
+     * @return the size of the page in bytes
+     */
+    public int getPageSize() {
+        return HEADER_SIZE + segCount + payloadLength;
     }
 
     /**
@@ -226,48 +389,125 @@ public class OggPage {
      * @return the dumped binary byte array
      */
     public byte[] dump() {
-        if (checkSum == 0) {
-            byte[] dataDump = dump0();
-            checkSum = CRCUtil.getCRC(dataDump);
+        byte[] data = new byte[getPageSize()];
+        dump(data, 0);
+        return data;
+    }
+
+    /**
+     * Dump the Ogg page into a caller supplied array, which could be reused for following pages.
+     * Will calculate the checksum if the checksum is zero.
+     *
+     * @param dst    the destination array
+     * @param offset the offset in {@code dst}
+     * @return the number of bytes written, that is {@link OggPage#getPageSize()}
+     * @throws IndexOutOfBoundsException if there isn't enough room in {@code dst}
+     */
+    public int dump(byte[] dst, int offset) {
+        Preconditions.checkPositionIndexes(offset, offset + getPageSize(), dst.length);
+        ByteBuffer buffer = ByteBuffer.wrap(dst);
+        buffer.position(offset);
+        dump(buffer);
+        return buffer.position() - offset;
+    }
+
+    /**
+     * Dump the Ogg page into a buffer at its current position, the position is advanced by the size of the page.
+     * Will calculate the checksum if the checksum is zero.
+     *
+     * <p>The page is written in a single pass, the checksum is calculated over the written bytes and then patched
+     * into the header.</p>
+     *
+     * @param dst the destination buffer, heap or direct
+     * @throws java.nio.BufferOverflowException if there isn't enough room in {@code dst}
+     */
+    public void dump(ByteBuffer dst) {
+        int pageSize = getPageSize();
+        if (dst.remaining() < pageSize) {
+            throw new BufferOverflowException();
         }
-        return dump0();
-    }
-
-    private byte[] dump0() {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        LittleEndianDataOutputStream out = new LittleEndianDataOutputStream(byteArrayOutputStream);
-
-        try {
-            out.write(CAPTURE_PATTERN);
-            out.write(version);
-            out.write(flag);
-            out.writeLong(granulePosition);
-            out.writeInt((int) serialNum);
-            out.writeInt((int) seqNum);
-            out.writeInt(checkSum);
-            out.write(getSegCount());
-            out.write(laceValues);
-            for (byte[] dataPacket : dataPackets) {
-                out.write(dataPacket);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("OggPage dump to byte array error", e);
+        int index = dst.position();
+        boolean computeCheckSum = checkSum == 0;
+        writeHeader(dst, index, checkSum);
+        ByteBuffer out = dst.duplicate();
+        out.position(index + HEADER_SIZE);
+        out.put(laceValues, 0, segCount);
+        out.put(payload, 0, payloadLength);
+        if (computeCheckSum) {
+            checkSum = CRCUtil.update(0, dst, index, pageSize);
+            putIntLE(dst, index + CHECKSUM_OFFSET, checkSum);
         }
-        return byteArrayOutputStream.toByteArray();
+        dst.position(index + pageSize);
     }
 
-    private byte[] lenToLaceValues(int len, boolean isPartial) {
-        int countOf255 = len / 255;
-        if (isPartial) {
-            byte[] laceValues = new byte[countOf255];
-            Arrays.fill(laceValues, (byte) 255);
-            return laceValues;
-        } else {
-            int lastValue = len % 255;
-            byte[] laceValues = new byte[countOf255 + 1];
-            Arrays.fill(laceValues, 0, countOf255, (byte) 255);
-            laceValues[countOf255] = (byte) lastValue;
-            return laceValues;
+    private void writeHeader(ByteBuffer dst, int index, int checkSum) {
+        Preconditions.checkPositionIndexes(index, index + HEADER_SIZE, dst.limit());
+        for (int i = 0; i < CAPTURE_PATTERN.length; i++) {
+            dst.put(index + i, CAPTURE_PATTERN[i]);
+        }
+        dst.put(index + 4, (byte) version);
+        dst.put(index + 5, (byte) flag);
+        putIntLE(dst, index + 6, (int) granulePosition);
+        putIntLE(dst, index + 10, (int) (granulePosition >>> 32));
+        putIntLE(dst, index + 14, (int) serialNum);
+        putIntLE(dst, index + 18, (int) seqNum);
+        putIntLE(dst, index + CHECKSUM_OFFSET, checkSum);
+        dst.put(index + 26, (byte) getSegCount());
+    }
+
+    private static void putIntLE(ByteBuffer dst, int index, int value) {
+        dst.put(index, (byte) value);
+        dst.put(index + 1, (byte) (value >>> 8));
+        dst.put(index + 2, (byte) (value >>> 16));
+        dst.put(index + 3, (byte) (value >>> 24));
+    }
+
+    private void addPacket(byte[] data, int offset, int length, boolean isPartial) {
+        Preconditions.checkPositionIndexes(offset, offset + length, data.length);
+        int laceCount = isPartial ? length / MAX_LACE_VALUE : length / MAX_LACE_VALUE + 1;
+        if (segCount + laceCount > MAX_LACE_VALUE) {
+            throw new InvalidOggException("Too many segments in an Ogg page");
+        }
+        ensureSegCapacity(segCount + laceCount);
+        Arrays.fill(laceValues, segCount, segCount + laceCount, (byte) MAX_LACE_VALUE);
+        if (!isPartial) {
+            laceValues[segCount + laceCount - 1] = (byte) (length % MAX_LACE_VALUE);
+        }
+        segCount += laceCount;
+        ensurePayloadCapacity(payloadLength + length);
+        System.arraycopy(data, offset, payload, payloadLength, length);
+        addPacket(payloadLength, length);
+        payloadLength += length;
+        checkSum = 0;
+    }
+
+    private void addPacket(int offset, int length) {
+        if (packetCount == packetOffsets.length) {
+            int capacity = Math.max(4, packetCount * 2);
+            packetOffsets = Arrays.copyOf(packetOffsets, capacity);
+            packetLengths = Arrays.copyOf(packetLengths, capacity);
+        }
+        packetOffsets[packetCount] = offset;
+        packetLengths[packetCount] = length;
+        packetCount++;
+    }
+
+    private void ensureSegCapacity(int capacity) {
+        if (laceValues.length < capacity) {
+            laceValues = Arrays.copyOf(laceValues, Math.max(capacity, Math.min(laceValues.length * 2,
+                    MAX_LACE_VALUE)));
+        }
+    }
+
+    private void ensurePayloadCapacity(int capacity) {
+        if (payload.length < capacity) {
+            payload = Arrays.copyOf(payload, Math.max(capacity, payload.length * 2));
+        }
+    }
+
+    private static void checkIndex(int i, int size) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
         }
     }
 }
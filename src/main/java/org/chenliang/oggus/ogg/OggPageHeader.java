@@ -0,0 +1,123 @@
+package org.chenliang.oggus.ogg;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The header fields of an Ogg page, as returned by {@link OggStream#skimPage()} without reading the payload.
+ */
+public final class OggPageHeader {
+    private final long offset;
+    private final int flag;
+    private final long granulePosition;
+    private final long serialNum;
+    private final long seqNum;
+    private final int checkSum;
+    private final int segCount;
+    private final int payloadLength;
+    private final boolean completed;
+
+    private OggPageHeader(long offset, int flag, long granulePosition, long serialNum, long seqNum, int checkSum,
+                          int segCount, int payloadLength, boolean completed) {
+        this.offset = offset;
+        this.flag = flag;
+        this.granulePosition = granulePosition;
+        this.serialNum = serialNum;
+        this.seqNum = seqNum;
+        this.checkSum = checkSum;
+        this.segCount = segCount;
+        this.payloadLength = payloadLength;
+        this.completed = completed;
+    }
+
+    /**
+     * Decode the header and lace values of a page, which must be available in the buffer.
+     */
+    static OggPageHeader from(ByteBuffer buffer, int index, long offset) {
+        int segCount = Byte.toUnsignedInt(buffer.get(index + OggPage.HEADER_SIZE - 1));
+        int payloadLength = 0;
+        int lastLaceValue = 0;
+        for (int i = 0; i < segCount; i++) {
+            lastLaceValue = Byte.toUnsignedInt(buffer.get(index + OggPage.HEADER_SIZE + i));
+            payloadLength += lastLaceValue;
+        }
+        return new OggPageHeader(offset,
+                buffer.get(index + 5) & 0x07,
+                OggPages.getLongLE(buffer, index + OggPages.GRANULE_POSITION_OFFSET),
+                Integer.toUnsignedLong(OggPages.getIntLE(buffer, index + OggPages.SERIAL_NUM_OFFSET)),
+                Integer.toUnsignedLong(OggPages.getIntLE(buffer, index + OggPages.SEQ_NUM_OFFSET)),
+                OggPages.getIntLE(buffer, index + OggPage.CHECKSUM_OFFSET),
+                segCount, payloadLength, segCount > 0 && lastLaceValue < OggPage.MAX_LACE_VALUE);
+    }
+
+    /**
+     * @return the offset of the page in the underlying stream or file
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getFlag() {
+        return flag;
+    }
+
+    public boolean isContinued() {
+        return (flag & 0x01) != 0;
+    }
+
+    public boolean isBOS() {
+        return (flag & 0x02) != 0;
+    }
+
+    public boolean isEOS() {
+        return (flag & 0x04) != 0;
+    }
+
+    public long getGranulePosition() {
+        return granulePosition;
+    }
+
+    public long getSerialNum() {
+        return serialNum;
+    }
+
+    public long getSeqNum() {
+        return seqNum;
+    }
+
+    /**
+     * @return the stored checksum, which is not verified
+     */
+    public int getCheckSum() {
+        return checkSum;
+    }
+
+    public int getSegCount() {
+        return segCount;
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * @return the total size of the page in bytes
+     */
+    public int getPageSize() {
+        return OggPage.HEADER_SIZE + segCount + payloadLength;
+    }
+
+    /**
+     * Check whether the last data packet is completed in this page.
+     *
+     * @return true if the last data packet is completed in this page.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return "OggPageHeader{offset=" + offset + ", serialNum=" + serialNum + ", seqNum=" + seqNum
+                + ", granulePosition=" + granulePosition + ", pageSize=" + getPageSize() + "}";
+    }
+}
@@ -0,0 +1,249 @@
+package org.chenliang.oggus.ogg;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only view of a serialized Ogg page in a {@link ByteBuffer}, e.g. a memory-mapped file or a network buffer.
+ *
+ * <p>Nothing is copied: the header fields are decoded from the buffer when they are requested, and the data packets
+ * are located by offset and length within the buffer. All accesses use absolute indexes, so the position and the
+ * limit of the buffer could change after the view is created, but its content must not.</p>
+ *
+ * <p>Use {@link OggPageView#toOggPage()} to get a mutable {@link OggPage} copy.</p>
+ */
+public final class OggPageView {
+    private final ByteBuffer buffer;
+    private final int index;
+    private final int pageSize;
+    private int packetCount = -1;
+
+    private OggPageView(ByteBuffer buffer, int index, int pageSize) {
+        this.buffer = buffer;
+        this.index = index;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Create a view of the page at the current position of a buffer. The position is not changed.
+     *
+     * @param buffer the buffer
+     * @return the view
+     * @throws InvalidOggException if there isn't a complete page of a supported version at the position
+     */
+    public static OggPageView wrap(ByteBuffer buffer) {
+        return wrap(buffer, buffer.position());
+    }
+
+    /**
+     * Create a view of the page at an absolute index of a buffer. Only the bytes before the limit of the buffer
+     * are considered. The checksum is not verified, see {@link OggPageView#isCheckSumValid()}.
+     *
+     * @param buffer the buffer
+     * @param index  the absolute index of the capture pattern
+     * @return the view
+     * @throws InvalidOggException if there isn't a complete page of a supported version at {@code index}
+     */
+    public static OggPageView wrap(ByteBuffer buffer, int index) {
+        int limit = buffer.limit();
+        if (limit - index < OggPage.HEADER_SIZE || !OggPages.isCapturePattern(buffer, index)) {
+            throw new InvalidOggException("Not an Ogg page");
+        }
+        int version = Byte.toUnsignedInt(buffer.get(index + 4));
+        if (version != 0) {
+            throw new InvalidOggException("Unsupported Ogg page version: " + version);
+        }
+        int segCount = Byte.toUnsignedInt(buffer.get(index + OggPage.HEADER_SIZE - 1));
+        if (limit - index < OggPage.HEADER_SIZE + segCount || limit - index < OggPages.getPageSize(buffer, index)) {
+            throw new InvalidOggException("Incomplete Ogg page");
+        }
+        return new OggPageView(buffer, index, OggPages.getPageSize(buffer, index));
+    }
+
+    /**
+     * @return the buffer of this view
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return the absolute index of this page in the buffer
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the total size of this page in bytes
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getVersion() {
+        return Byte.toUnsignedInt(buffer.get(index + 4));
+    }
+
+    public int getFlag() {
+        return buffer.get(index + 5) & 0x07;
+    }
+
+    public boolean isContinued() {
+        return (getFlag() & 0x01) != 0;
+    }
+
+    public boolean isBOS() {
+        return (getFlag() & 0x02) != 0;
+    }
+
+    public boolean isEOS() {
+        return (getFlag() & 0x04) != 0;
+    }
+
+    public long getGranulePosition() {
+        return OggPages.getLongLE(buffer, index + OggPages.GRANULE_POSITION_OFFSET);
+    }
+
+    public long getSerialNum() {
+        return Integer.toUnsignedLong(OggPages.getIntLE(buffer, index + OggPages.SERIAL_NUM_OFFSET));
+    }
+
+    public long getSeqNum() {
+        return Integer.toUnsignedLong(OggPages.getIntLE(buffer, index + OggPages.SEQ_NUM_OFFSET));
+    }
+
+    /**
+     * @return the stored checksum
+     */
+    public int getCheckSum() {
+        return OggPages.getIntLE(buffer, index + OggPage.CHECKSUM_OFFSET);
+    }
+
+    /**
+     * Calculate the checksum of the page content and compare it with the stored one.
+     *
+     * @return true if the stored checksum is valid
+     */
+    public boolean isCheckSumValid() {
+        return OggPages.computeCheckSum(buffer, index, pageSize) == getCheckSum();
+    }
+
+    public int getSegCount() {
+        return Byte.toUnsignedInt(buffer.get(index + OggPage.HEADER_SIZE - 1));
+    }
+
+    public int getLaceValue(int segment) {
+        checkIndex(segment, getSegCount());
+        return Byte.toUnsignedInt(buffer.get(index + OggPage.HEADER_SIZE + segment));
+    }
+
+    /**
+     * @return the absolute index of the first data byte in the buffer
+     */
+    public int getPayloadIndex() {
+        return index + OggPage.HEADER_SIZE + getSegCount();
+    }
+
+    public int getPayloadLength() {
+        return pageSize - OggPage.HEADER_SIZE - getSegCount();
+    }
+
+    /**
+     * Check whether the last data packet is completed in this page.
+     *
+     * @return true if the last data packet is completed in this page.
+     */
+    public boolean isCompleted() {
+        int segCount = getSegCount();
+        return segCount > 0 && getLaceValue(segCount - 1) < OggPage.MAX_LACE_VALUE;
+    }
+
+    /**
+     * @return the number of data packets in this page, including a trailing partial packet
+     */
+    public int getPacketCount() {
+        if (packetCount < 0) {
+            int segCount = getSegCount();
+            int count = 0;
+            for (int i = 0; i < segCount; i++) {
+                if (getLaceValue(i) < OggPage.MAX_LACE_VALUE) {
+                    count++;
+                }
+            }
+            packetCount = segCount > 0 && !isCompleted() ? count + 1 : count;
+        }
+        return packetCount;
+    }
+
+    /**
+     * @param packet the index of the data packet
+     * @return the absolute index of the data packet in the buffer
+     */
+    public int getPacketIndex(int packet) {
+        checkIndex(packet, getPacketCount());
+        int packetIndex = getPayloadIndex();
+        int segment = 0;
+        for (int i = 0; i < packet; i++) {
+            int segLen;
+            do {
+                segLen = getLaceValue(segment++);
+                packetIndex += segLen;
+            } while (segLen == OggPage.MAX_LACE_VALUE);
+        }
+        return packetIndex;
+    }
+
+    /**
+     * @param packet the index of the data packet
+     * @return the length of the data packet in bytes
+     */
+    public int getPacketLength(int packet) {
+        checkIndex(packet, getPacketCount());
+        int segCount = getSegCount();
+        int segment = 0;
+        for (int i = 0; i < packet; i++) {
+            while (getLaceValue(segment++) == OggPage.MAX_LACE_VALUE) {
+                // skip the segments of previous packets
+            }
+        }
+        int packetLength = 0;
+        while (segment < segCount) {
+            int segLen = getLaceValue(segment++);
+            packetLength += segLen;
+            if (segLen < OggPage.MAX_LACE_VALUE) {
+                break;
+            }
+        }
+        return packetLength;
+    }
+
+    /**
+     * Get a data packet as a read-only slice of the buffer, sharing its content.
+     *
+     * @param packet the index of the data packet
+     * @return the data packet
+     */
+    public ByteBuffer getPacket(int packet) {
+        ByteBuffer slice = buffer.duplicate();
+        int packetIndex = getPacketIndex(packet);
+        slice.limit(packetIndex + getPacketLength(packet)).position(packetIndex);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Copy this page into a new {@link OggPage}.
+     *
+     * @return the OggPage
+     */
+    public OggPage toOggPage() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.load(this);
+        return oggPage;
+    }
+
+    private static void checkIndex(int i, int size) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.chenliang.oggus.ogg;
+
+import org.chenliang.oggus.util.CRCUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Static methods working on serialized Ogg pages, e.g. pages dumped by {@link OggPage#dump()} or pages of a
+ * memory-mapped file.
+ *
+ * <p>The {@code set...()} methods rewrite a header field in place and patch the {@code CRC_checksum} from the old
+ * checksum and the changed bytes only, the payload of the page is never read. The stored checksum must be valid
+ * beforehand, otherwise the patched checksum is invalid too.</p>
+ */
+public class OggPages {
+    static final int GRANULE_POSITION_OFFSET = 6;
+    static final int SERIAL_NUM_OFFSET = 14;
+    static final int SEQ_NUM_OFFSET = 18;
+
+    static final int INVALID_CAPTURE_PATTERN = -1;
+    static final int INVALID_VERSION = -2;
+    static final int INVALID_TRUNCATED = -3;
+    static final int INVALID_CHECKSUM = -4;
+
+    private OggPages() {
+    }
+
+    /**
+     * Get the total size of a serialized page, computed from its header and lace values.
+     *
+     * @param page   the buffer containing the page
+     * @param offset the offset of the page in {@code page}
+     * @return the size of the page in bytes
+     */
+    public static int getPageSize(byte[] page, int offset) {
+        return getPageSize(ByteBuffer.wrap(page), offset);
+    }
+
+    /**
+     * Get the total size of a serialized page, computed from its header and lace values.
+     *
+     * @param page  the buffer containing the page
+     * @param index the absolute index of the page in {@code page}
+     * @return the size of the page in bytes
+     */
+    public static int getPageSize(ByteBuffer page, int index) {
+        int segCount = Byte.toUnsignedInt(page.get(index + OggPage.HEADER_SIZE - 1));
+        int size = OggPage.HEADER_SIZE + segCount;
+        for (int i = 0; i < segCount; i++) {
+            size += Byte.toUnsignedInt(page.get(index + OggPage.HEADER_SIZE + i));
+        }
+        return size;
+    }
+
+    public static void setGranulePosition(byte[] page, int offset, long granulePosition) {
+        setGranulePosition(ByteBuffer.wrap(page), offset, granulePosition);
+    }
+
+    public static void setGranulePosition(ByteBuffer page, int index, long granulePosition) {
+        patchField(page, index, GRANULE_POSITION_OFFSET, 8, granulePosition);
+    }
+
+    public static void setSerialNum(byte[] page, int offset, long serialNum) {
+        setSerialNum(ByteBuffer.wrap(page), offset, serialNum);
+    }
+
+    public static void setSerialNum(ByteBuffer page, int index, long serialNum) {
+        patchField(page, index, SERIAL_NUM_OFFSET, 4, serialNum);
+    }
+
+    public static void setSeqNum(byte[] page, int offset, long seqNum) {
+        setSeqNum(ByteBuffer.wrap(page), offset, seqNum);
+    }
+
+    public static void setSeqNum(ByteBuffer page, int index, long seqNum) {
+        patchField(page, index, SEQ_NUM_OFFSET, 4, seqNum);
+    }
+
+    private static void patchField(ByteBuffer page, int index, int fieldOffset, int fieldSize, long value) {
+        if (!isCapturePattern(page, index)) {
+            throw new InvalidOggException("Not an Ogg page");
+        }
+        // crc(new) = crc(old) ^ crc(old ^ new), where old ^ new is zero outside of the field
+        int diffCrc = 0;
+        for (int i = 0; i < fieldSize; i++) {
+            int pos = index + fieldOffset + i;
+            byte newByte = (byte) (value >>> (i * 8));
+            diffCrc = CRCUtil.update(diffCrc, page.get(pos) ^ newByte);
+            page.put(pos, newByte);
+        }
+        diffCrc = CRCUtil.zeroExtend(diffCrc, getPageSize(page, index) - fieldOffset - fieldSize);
+        int checkSumIndex = index + OggPage.CHECKSUM_OFFSET;
+        int checkSum = getIntLE(page, checkSumIndex) ^ diffCrc;
+        for (int i = 0; i < 4; i++) {
+            page.put(checkSumIndex + i, (byte) (checkSum >>> (i * 8)));
+        }
+    }
+
+    /**
+     * Compute the checksum of a serialized page, the stored {@code CRC_checksum} field is treated as zero.
+     *
+     * @param page     the buffer containing the page
+     * @param index    the absolute index of the page in {@code page}
+     * @param pageSize the size of the page, see {@link #getPageSize(ByteBuffer, int)}
+     * @return the checksum
+     */
+    public static int computeCheckSum(ByteBuffer page, int index, int pageSize) {
+        int crc = CRCUtil.update(0, page, index, OggPage.CHECKSUM_OFFSET);
+        crc = CRCUtil.zeroExtend(crc, 4);
+        int restIndex = OggPage.CHECKSUM_OFFSET + 4;
+        return CRCUtil.update(crc, page, index + restIndex, pageSize - restIndex);
+    }
+
+    /**
+     * Check the page at {@code index}: capture pattern, version, completeness within the limit of the buffer and
+     * checksum.
+     *
+     * @return the size of the page if it is valid, otherwise one of the negative {@code INVALID_...} codes
+     */
+    static int checkPage(ByteBuffer buffer, int index) {
+        int limit = buffer.limit();
+        if (limit - index < OggPage.CAPTURE_PATTERN.length || !isCapturePattern(buffer, index)) {
+            return INVALID_CAPTURE_PATTERN;
+        }
+        if (limit - index < OggPage.HEADER_SIZE) {
+            return INVALID_TRUNCATED;
+        }
+        if (buffer.get(index + 4) != 0) {
+            return INVALID_VERSION;
+        }
+        int segCount = Byte.toUnsignedInt(buffer.get(index + OggPage.HEADER_SIZE - 1));
+        if (limit - index < OggPage.HEADER_SIZE + segCount) {
+            return INVALID_TRUNCATED;
+        }
+        int pageSize = getPageSize(buffer, index);
+        if (limit - index < pageSize) {
+            return INVALID_TRUNCATED;
+        }
+        if (computeCheckSum(buffer, index, pageSize) != getIntLE(buffer, index + OggPage.CHECKSUM_OFFSET)) {
+            return INVALID_CHECKSUM;
+        }
+        return pageSize;
+    }
+
+    static boolean isCapturePattern(ByteBuffer buffer, int index) {
+        for (int i = 0; i < OggPage.CAPTURE_PATTERN.length; i++) {
+            if (buffer.get(index + i) != OggPage.CAPTURE_PATTERN[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int getIntLE(ByteBuffer buffer, int index) {
+        int value = buffer.getInt(index);
+        return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Integer.reverseBytes(value);
+    }
+
+    static long getLongLE(ByteBuffer buffer, int index) {
+        long value = buffer.getLong(index);
+        return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value);
+    }
+}
@@ -0,0 +1,341 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A push-style Ogg parser: the caller feeds chunks of an Ogg stream as they arrive, e.g. from a non-blocking
+ * channel, and receives the pages and packets through a {@link Listener}. Nothing blocks, so a single thread could
+ * parse many streams.
+ *
+ * <p>Pages complete within a chunk are parsed in place. Only the beginning of a page cut by the end of a chunk is
+ * copied, along with the beginning of packets continued in the next pages. Invalid data between pages is skipped,
+ * and the page checksums are handled according to the {@link CheckSumPolicy}, {@link CheckSumPolicy#TRUSTED} by
+ * default.</p>
+ *
+ * <p>An {@code OggParser} isn't thread safe, a stream must be fed by one thread at a time.</p>
+ */
+public class OggParser {
+    private final Listener listener;
+    // The beginning of a page cut by the end of a chunk, allocated on demand and grown to the size of the page
+    private ByteBuffer pending = ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN);
+    private int pendingLength;
+    private final Map<Long, PartialPacket> partialPackets = new HashMap<>();
+    private CheckSumPolicy checkSumPolicy = CheckSumPolicy.TRUSTED;
+    private long failedPageCount;
+
+    /**
+     * @param listener the listener receiving the pages and packets
+     */
+    public OggParser(Listener listener) {
+        this.listener = Objects.requireNonNull(listener);
+    }
+
+    public CheckSumPolicy getCheckSumPolicy() {
+        return checkSumPolicy;
+    }
+
+    /**
+     * Set how the checksums of the following pages are handled.
+     *
+     * @param checkSumPolicy the checksum policy
+     */
+    public void setCheckSumPolicy(CheckSumPolicy checkSumPolicy) {
+        this.checkSumPolicy = Objects.requireNonNull(checkSumPolicy);
+    }
+
+    /**
+     * @return the number of pages whose checksum didn't match their content
+     */
+    public long getFailedPageCount() {
+        return failedPageCount;
+    }
+
+    /**
+     * Parse a chunk of the Ogg stream, all its remaining bytes are consumed. The listener is called for each page
+     * completed by the chunk, the chunk may be reused once this method returns.
+     *
+     * @param chunk the next bytes of the Ogg stream
+     * @throws InvalidOggException if the checksum doesn't match and the policy is {@link CheckSumPolicy#STRICT}, the
+     *                             page is skipped and the rest of the chunk isn't consumed then
+     */
+    public void feed(ByteBuffer chunk) {
+        while (chunk.hasRemaining()) {
+            if (pendingLength > 0) {
+                int required = drainPending();
+                if (pendingLength > 0) {
+                    appendPending(chunk, Math.min(required - pendingLength, chunk.remaining()), required);
+                }
+            } else {
+                feedChunk(chunk);
+            }
+        }
+        drainPending();
+    }
+
+    /**
+     * @return true if the beginning of a page has been fed but not its end
+     */
+    public boolean hasPartialPage() {
+        return pendingLength > 0;
+    }
+
+    /**
+     * Drop the partial page and the partial packets, e.g. before feeding a new stream.
+     */
+    public void reset() {
+        pendingLength = 0;
+        partialPackets.clear();
+    }
+
+    private void feedChunk(ByteBuffer chunk) {
+        int pos = chunk.position();
+        int limit = chunk.limit();
+        int found = OggSync.findCapturePattern(chunk, pos, limit);
+        if (found < 0) {
+            // Keep the bytes that could be the beginning of a capture pattern
+            chunk.position(limit - capturePatternPrefixLength(chunk, pos, limit));
+            appendPending(chunk, chunk.remaining(), OggPage.HEADER_SIZE);
+            return;
+        }
+        chunk.position(found);
+        int pageSize = requiredLength(chunk, found, limit - found);
+        if (pageSize < 0) {
+            chunk.position(found + 1);
+        } else if (pageSize > limit - found) {
+            appendPending(chunk, limit - found, pageSize);
+        } else {
+            chunk.position(emitPage(chunk, found, pageSize) ? found + pageSize : found + 1);
+        }
+    }
+
+    /**
+     * Parse the pages complete in the pending bytes.
+     *
+     * @return the number of bytes required to complete the pending page, if any
+     */
+    private int drainPending() {
+        while (pendingLength > 0) {
+            pending.limit(pendingLength);
+            int required = requiredLength(pending, 0, pendingLength);
+            if (required > pendingLength) {
+                return required;
+            }
+            if (required > 0 && emitPage(pending, 0, required)) {
+                dropPending(required);
+            } else {
+                resyncPending();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the number of bytes to make the page at the index complete, as far as the available bytes tell.
+     *
+     * @return the size of the page if its lace values are available, a lower bound otherwise, or -1 if the bytes
+     * don't start a page
+     */
+    private static int requiredLength(ByteBuffer buffer, int index, int available) {
+        int patternLength = Math.min(available, OggPage.CAPTURE_PATTERN.length);
+        for (int i = 0; i < patternLength; i++) {
+            if (buffer.get(index + i) != OggPage.CAPTURE_PATTERN[i]) {
+                return -1;
+            }
+        }
+        if (available < OggPage.HEADER_SIZE) {
+            return OggPage.HEADER_SIZE;
+        }
+        if (buffer.get(index + 4) != 0) {
+            return -1;
+        }
+        int segCount = Byte.toUnsignedInt(buffer.get(index + OggPage.HEADER_SIZE - 1));
+        if (available < OggPage.HEADER_SIZE + segCount) {
+            return OggPage.HEADER_SIZE + segCount;
+        }
+        return OggPages.getPageSize(buffer, index);
+    }
+
+    /**
+     * Drop the first byte of the partial page and keep the bytes from the next capture pattern, if any.
+     */
+    private void resyncPending() {
+        pending.limit(pendingLength);
+        int found = OggSync.findCapturePattern(pending, 1, pendingLength);
+        int from = found >= 0 ? found : pendingLength - capturePatternPrefixLength(pending, 1, pendingLength);
+        dropPending(from);
+    }
+
+    private void dropPending(int length) {
+        System.arraycopy(pending.array(), length, pending.array(), 0, pendingLength - length);
+        pendingLength -= length;
+    }
+
+    /**
+     * Append bytes of a chunk to the partial page.
+     *
+     * @param required the size of the page as far as the bytes tell, the pending buffer is grown to it at least
+     */
+    private void appendPending(ByteBuffer chunk, int length, int required) {
+        int capacity = Math.max(pendingLength + length, required);
+        if (capacity > pending.capacity()) {
+            ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            System.arraycopy(pending.array(), 0, grown.array(), 0, pendingLength);
+            pending = grown;
+        }
+        chunk.get(pending.array(), pendingLength, length);
+        pendingLength += length;
+    }
+
+    /**
+     * @return the length of the longest suffix of {@code [from, to)} which is a proper prefix of the capture pattern
+     */
+    private static int capturePatternPrefixLength(ByteBuffer buffer, int from, int to) {
+        for (int length = Math.min(OggPage.CAPTURE_PATTERN.length - 1, to - from); length > 0; length--) {
+            boolean matched = true;
+            for (int i = 0; i < length && matched; i++) {
+                matched = buffer.get(to - length + i) == OggPage.CAPTURE_PATTERN[i];
+            }
+            if (matched) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Deliver a complete page and its packets to the listener.
+     *
+     * @return false if the page has been dropped because of a checksum mismatch
+     */
+    private boolean emitPage(ByteBuffer buffer, int index, int pageSize) {
+        OggPageView page = OggPageView.wrap(buffer, index);
+        if (checkSumPolicy != CheckSumPolicy.TRUSTED && !page.isCheckSumValid()) {
+            failedPageCount++;
+            if (checkSumPolicy == CheckSumPolicy.STRICT) {
+                if (buffer == pending) {
+                    dropPending(pageSize);
+                } else {
+                    buffer.position(index + pageSize);
+                }
+                throw new InvalidOggException("Ogg page checksum mismatch");
+            }
+            return false;
+        }
+        listener.onPage(page);
+        emitPackets(page);
+        return true;
+    }
+
+    private void emitPackets(OggPageView page) {
+        long serialNum = page.getSerialNum();
+        PartialPacket partialPacket = partialPackets.remove(serialNum);
+        if (partialPacket != null && page.getSeqNum() != ((partialPacket.seqNum + 1) & 0xffffffffL)) {
+            // A page has been lost
+            partialPacket = null;
+        }
+        boolean continued = page.isContinued();
+        ByteBuffer buffer = page.getBuffer();
+        int segCount = page.getSegCount();
+        int lastPacketEnd = segCount - 1;
+        while (lastPacketEnd >= 0 && page.getLaceValue(lastPacketEnd) == OggPage.MAX_LACE_VALUE) {
+            lastPacketEnd--;
+        }
+
+        int packetIndex = page.getPayloadIndex();
+        int packetLength = 0;
+        boolean first = true;
+        for (int i = 0; i < segCount; i++) {
+            int segLen = page.getLaceValue(i);
+            packetLength += segLen;
+            if (segLen == OggPage.MAX_LACE_VALUE) {
+                continue;
+            }
+            long granulePosition = i == lastPacketEnd ? page.getGranulePosition() : -1;
+            if (first && continued) {
+                // Without its beginning, the end of a packet is dropped
+                if (partialPacket != null) {
+                    append(partialPacket.data, buffer, packetIndex, packetLength);
+                    listener.onPacket(serialNum, ByteBuffer.wrap(partialPacket.data.toByteArray()).asReadOnlyBuffer(),
+                            granulePosition);
+                }
+            } else {
+                listener.onPacket(serialNum, slice(buffer, packetIndex, packetLength), granulePosition);
+            }
+            first = false;
+            packetIndex += packetLength;
+            packetLength = 0;
+        }
+
+        if (packetLength > 0 && !page.isEOS()) {
+            if (!first || !continued) {
+                partialPacket = new PartialPacket(packetLength * 2);
+            }
+            if (partialPacket != null) {
+                append(partialPacket.data, buffer, packetIndex, packetLength);
+                partialPacket.seqNum = page.getSeqNum();
+                partialPackets.put(serialNum, partialPacket);
+            }
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int index, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(index + length).position(index);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    private static void append(ByteArrayOutputStream out, ByteBuffer buffer, int index, int length) {
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + index, length);
+        } else {
+            byte[] bytes = new byte[length];
+            ByteBuffer src = buffer.duplicate();
+            src.limit(index + length).position(index);
+            src.get(bytes);
+            out.write(bytes, 0, length);
+        }
+    }
+
+    /**
+     * The beginning of a packet continued in the next page of its logical stream.
+     */
+    private static class PartialPacket {
+        private final ByteArrayOutputStream data;
+        private long seqNum;
+
+        PartialPacket(int size) {
+            data = new ByteArrayOutputStream(size);
+        }
+    }
+
+    /**
+     * Receive the pages and packets of an {@link OggParser}. The buffers are only valid during the call, as they may
+     * be backed by a chunk reused by the caller.
+     */
+    public interface Listener {
+        /**
+         * Called for each complete page, before its packets.
+         *
+         * @param page the page
+         */
+        default void onPage(OggPageView page) {
+        }
+
+        /**
+         * Called for each complete packet, in the order of the stream. A packet continued over several pages is
+         * reported with the page completing it.
+         *
+         * @param serialNum       the serial number of the logical stream
+         * @param packet          the read-only packet data
+         * @param granulePosition the granule position of the page if it's the last packet completed in the page,
+         *                        -1 otherwise
+         */
+        default void onPacket(long serialNum, ByteBuffer packet, long granulePosition) {
+        }
+    }
+}
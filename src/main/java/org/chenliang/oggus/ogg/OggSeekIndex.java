@@ -0,0 +1,290 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A seek index of an Ogg file, storing granule position to byte offset keypoints for each logical stream, so that a
+ * seek only reads the bytes between two keypoints.
+ *
+ * <p>A keypoint is made of the granule position of a page and the offset right after it. A new keypoint is added
+ * when a page of the logical stream ends at least {@code spacing} bytes after the previous keypoint, the first page
+ * with a granule position is always a keypoint.</p>
+ *
+ * <p>The index is usually stored in a sidecar file next to the Ogg file, see {@link OggSeekIndex#sidecarOf(Path)},
+ * which {@link OggStream#from(String)} and {@link OggStream#map(Path)} load automatically. The file is made of
+ * little-endian values:</p>
+ *
+ * <pre>
+ * magic "OggIndex"                       8 bytes
+ * version = 1                            4 bytes
+ * spacing                                4 bytes
+ * size of the indexed Ogg file           8 bytes
+ * stream count                           4 bytes
+ * {serial number, keypoint count}        8 bytes per stream
+ * {granule position, offset}             16 bytes per keypoint, grouped by stream in the order above
+ * </pre>
+ */
+public final class OggSeekIndex {
+    public static final int DEFAULT_SPACING = 64 * 1024;
+    public static final String SIDECAR_SUFFIX = ".idx";
+    private static final byte[] MAGIC = {'O', 'g', 'g', 'I', 'n', 'd', 'e', 'x'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+    private static final int STREAM_ENTRY_SIZE = 8;
+    private static final int KEYPOINT_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    // serialNum -> {index of the first keypoint, keypoint count}
+    private final Map<Long, int[]> streams = new LinkedHashMap<>();
+
+    private OggSeekIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || !hasMagic(buffer)) {
+            throw new InvalidOggException("Not an Ogg seek index");
+        }
+        int version = buffer.getInt(MAGIC.length);
+        if (version != VERSION) {
+            throw new InvalidOggException("Unsupported Ogg seek index version: " + version);
+        }
+        int streamCount = buffer.getInt(24);
+        long keypointIndex = HEADER_SIZE + (long) streamCount * STREAM_ENTRY_SIZE;
+        if (streamCount < 0 || keypointIndex > buffer.limit()) {
+            throw new InvalidOggException("Corrupted Ogg seek index");
+        }
+        for (int i = 0; i < streamCount; i++) {
+            int entry = HEADER_SIZE + i * STREAM_ENTRY_SIZE;
+            int keypointCount = buffer.getInt(entry + 4);
+            if (keypointCount < 0) {
+                throw new InvalidOggException("Corrupted Ogg seek index");
+            }
+            streams.put(Integer.toUnsignedLong(buffer.getInt(entry)), new int[]{(int) keypointIndex, keypointCount});
+            keypointIndex += (long) keypointCount * KEYPOINT_SIZE;
+        }
+        if (keypointIndex != buffer.limit()) {
+            throw new InvalidOggException("Corrupted Ogg seek index");
+        }
+    }
+
+    /**
+     * Build the seek index of an Ogg file with a single pass over its page headers. A truncated last page, e.g. of
+     * a capture still being written, isn't indexed.
+     *
+     * @param file    path of an Ogg file
+     * @param spacing the minimum number of bytes between two keypoints of a logical stream
+     * @return the seek index
+     * @throws IOException if an I/O error occurs
+     */
+    public static OggSeekIndex build(Path file, int spacing) throws IOException {
+        if (spacing <= 0) {
+            throw new IllegalArgumentException("Invalid spacing: " + spacing);
+        }
+        Map<Long, List<long[]>> keypoints = new LinkedHashMap<>();
+        long size;
+        try (OggStream oggStream = OggStream.map(file)) {
+            size = Files.size(file);
+            OggPageHeader header;
+            while ((header = skimPage(oggStream)) != null) {
+                if (header.getGranulePosition() == -1) {
+                    continue;
+                }
+                List<long[]> streamKeypoints = keypoints.computeIfAbsent(header.getSerialNum(),
+                        serialNum -> new ArrayList<>());
+                long offset = header.getOffset() + header.getPageSize();
+                if (streamKeypoints.isEmpty()
+                        || offset - streamKeypoints.get(streamKeypoints.size() - 1)[1] >= spacing) {
+                    streamKeypoints.add(new long[]{header.getGranulePosition(), offset});
+                }
+            }
+        }
+        return of(keypoints, spacing, size);
+    }
+
+    /**
+     * @return the header of the next page, or {@code null} if there isn't page left or the last page is truncated
+     */
+    private static OggPageHeader skimPage(OggStream oggStream) throws IOException {
+        try {
+            return oggStream.skimPage();
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Create a seek index from its keypoints.
+     *
+     * @param keypoints the {granule position, offset} keypoints of each logical stream, in ascending order
+     * @param spacing   the minimum number of bytes between two keypoints, or 0 if unknown
+     * @param size      the size of the indexed Ogg file
+     */
+    static OggSeekIndex of(Map<Long, List<long[]>> keypoints, int spacing, long size) {
+        int keypointCount = keypoints.values().stream().mapToInt(List::size).sum();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + keypoints.size() * STREAM_ENTRY_SIZE
+                + keypointCount * KEYPOINT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC).putInt(VERSION).putInt(spacing).putLong(size).putInt(keypoints.size());
+        for (Map.Entry<Long, List<long[]>> entry : keypoints.entrySet()) {
+            buffer.putInt(entry.getKey().intValue()).putInt(entry.getValue().size());
+        }
+        for (List<long[]> streamKeypoints : keypoints.values()) {
+            for (long[] keypoint : streamKeypoints) {
+                buffer.putLong(keypoint[0]).putLong(keypoint[1]);
+            }
+        }
+        buffer.flip();
+        return new OggSeekIndex(buffer);
+    }
+
+    /**
+     * Load a seek index file. The file is memory-mapped and the keypoints are searched in the mapping.
+     *
+     * @param indexFile path of the seek index file
+     * @return the seek index
+     * @throws IOException if an I/O error occurs
+     * @throws InvalidOggException if it isn't a valid seek index file
+     */
+    public static OggSeekIndex load(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            return new OggSeekIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    /**
+     * Load the sidecar seek index of an Ogg file if it exists and matches the size of the Ogg file.
+     *
+     * @return the seek index, or {@code null} if there isn't a valid one
+     */
+    static OggSeekIndex loadSidecar(Path file, long size) {
+        Path indexFile = sidecarOf(file);
+        if (!Files.isRegularFile(indexFile)) {
+            return null;
+        }
+        try {
+            OggSeekIndex index = load(indexFile);
+            return index.getSourceSize() == size ? index : null;
+        } catch (IOException | InvalidOggException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param file path of an Ogg file
+     * @return the path of its sidecar seek index file, e.g. {@code audio.opus.idx} for {@code audio.opus}
+     */
+    public static Path sidecarOf(Path file) {
+        return file.resolveSibling(file.getFileName() + SIDECAR_SUFFIX);
+    }
+
+    /**
+     * Write this seek index to a file.
+     *
+     * @param indexFile path of the seek index file
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer src = buffer.duplicate();
+            src.clear();
+            while (src.hasRemaining()) {
+                channel.write(src);
+            }
+        }
+    }
+
+    /**
+     * @return the minimum number of bytes between two keypoints of a logical stream, or 0 if unknown, e.g. for an
+     * index converted from an Ogg Skeleton
+     */
+    public int getSpacing() {
+        return buffer.getInt(12);
+    }
+
+    /**
+     * @return the size of the indexed Ogg file, an index whose size doesn't match is stale
+     */
+    public long getSourceSize() {
+        return buffer.getLong(16);
+    }
+
+    /**
+     * @return the serial numbers of the indexed logical streams
+     */
+    public long[] getSerialNums() {
+        return streams.keySet().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * @param serialNum the serial number of the logical stream
+     * @return true if the logical stream is indexed
+     */
+    public boolean contains(long serialNum) {
+        return streams.containsKey(serialNum);
+    }
+
+    public int getKeypointCount(long serialNum) {
+        int[] stream = streams.get(serialNum);
+        return stream == null ? 0 : stream[1];
+    }
+
+    public long getGranulePosition(long serialNum, int keypoint) {
+        return buffer.getLong(keypointIndex(serialNum, keypoint));
+    }
+
+    /**
+     * @return the offset right after the page of the keypoint
+     */
+    public long getOffset(long serialNum, int keypoint) {
+        return buffer.getLong(keypointIndex(serialNum, keypoint) + 8);
+    }
+
+    /**
+     * Find the last keypoint of a logical stream whose granule position is less than the given one.
+     *
+     * @param serialNum       the serial number of the logical stream
+     * @param granulePosition the granule position
+     * @return the index of the keypoint, or -1 if there isn't any
+     */
+    public int findKeypoint(long serialNum, long granulePosition) {
+        int low = 0;
+        int high = getKeypointCount(serialNum) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (getGranulePosition(serialNum, mid) < granulePosition) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private int keypointIndex(long serialNum, int keypoint) {
+        int[] stream = streams.get(serialNum);
+        int count = stream == null ? 0 : stream[1];
+        if (keypoint < 0 || keypoint >= count) {
+            throw new IndexOutOfBoundsException("Index: " + keypoint + ", Size: " + count);
+        }
+        return stream[0] + keypoint * KEYPOINT_SIZE;
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
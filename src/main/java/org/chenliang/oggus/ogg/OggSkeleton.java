@@ -0,0 +1,587 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * An Ogg Skeleton logical stream, describing the other logical streams of an Ogg file. Version 4.0 adds an index of
+ * keypoints to each logical stream, so that a player seeks with a single read instead of a search.
+ *
+ * <p>A Skeleton stream starts with a {@code fishead} packet in the first BOS page of the file, followed by a
+ * {@code fisbone} packet for each logical stream and, since version 4.0, an {@code index} packet for each indexed
+ * logical stream. It ends with an empty EOS page before the data pages. {@link OggStream} detects it while reading
+ * the header pages, see {@link OggStream#getSkeleton()}, and seeks with its index, see
+ * {@link OggSkeleton#toSeekIndex()}.</p>
+ *
+ * <p>{@link OggSkeleton#writeIndexed(Path, Path, int)} adds a Skeleton 4.0 stream with an index to an Ogg
+ * file.</p>
+ */
+public final class OggSkeleton {
+    public static final byte[] FISHEAD_SIGNATURE = {'f', 'i', 's', 'h', 'e', 'a', 'd', 0};
+    public static final byte[] FISBONE_SIGNATURE = {'f', 'i', 's', 'b', 'o', 'n', 'e', 0};
+    public static final byte[] INDEX_SIGNATURE = {'i', 'n', 'd', 'e', 'x', 0};
+    private static final int FISHEAD_SIZE = 80;
+    private static final int FISHEAD_V3_SIZE = 64;
+    private static final int FISBONE_SIZE = 52;
+    private static final int INDEX_HEADER_SIZE = 42;
+    private static final int MAX_PAGE_PAYLOAD = OggPage.MAX_LACE_VALUE * OggPage.MAX_LACE_VALUE;
+
+    private final long serialNum;
+    private int versionMajor;
+    private int versionMinor;
+    private long segmentLength = -1;
+    private long contentOffset = -1;
+    private final Map<Long, Bone> bones = new LinkedHashMap<>();
+    private final Map<Long, Index> indexes = new LinkedHashMap<>();
+    private final ByteArrayOutputStream partialPacket = new ByteArrayOutputStream();
+    private boolean completed;
+
+    OggSkeleton(long serialNum) {
+        this.serialNum = serialNum;
+    }
+
+    /**
+     * @return true if the page is the BOS page of a Skeleton stream
+     */
+    static boolean isSkeletonPage(OggPageView page) {
+        return page.isBOS() && page.getPacketCount() > 0 && startsWith(page.getPacket(0), FISHEAD_SIGNATURE);
+    }
+
+    /**
+     * Parse the packets of a page of this Skeleton stream.
+     *
+     * @throws InvalidOggException if a packet is corrupted
+     */
+    void accept(OggPageView page) {
+        int packetCount = page.getPacketCount();
+        for (int i = 0; i < packetCount; i++) {
+            if (i > 0 || !page.isContinued()) {
+                partialPacket.reset();
+            }
+            ByteBuffer packet = page.getPacket(i);
+            byte[] data = new byte[packet.remaining()];
+            packet.get(data);
+            partialPacket.write(data, 0, data.length);
+            if (i < packetCount - 1 || page.isCompleted()) {
+                parsePacket(partialPacket.toByteArray());
+                partialPacket.reset();
+            }
+        }
+        if (page.isEOS()) {
+            completed = true;
+        }
+    }
+
+    private void parsePacket(byte[] packet) {
+        ByteBuffer buffer = ByteBuffer.wrap(packet).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (startsWith(buffer, FISHEAD_SIGNATURE)) {
+                versionMajor = Short.toUnsignedInt(buffer.getShort(8));
+                versionMinor = Short.toUnsignedInt(buffer.getShort(10));
+                if (versionMajor >= 4) {
+                    segmentLength = buffer.getLong(FISHEAD_V3_SIZE);
+                    contentOffset = buffer.getLong(FISHEAD_V3_SIZE + 8);
+                }
+            } else if (startsWith(buffer, FISBONE_SIGNATURE)) {
+                Bone bone = new Bone(buffer);
+                bones.put(bone.serialNum, bone);
+            } else if (startsWith(buffer, INDEX_SIGNATURE) && versionMajor >= 4) {
+                Index index = new Index(buffer);
+                indexes.put(index.serialNum, index);
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new InvalidOggException("Corrupted Ogg Skeleton packet");
+        }
+    }
+
+    public long getSerialNum() {
+        return serialNum;
+    }
+
+    public int getVersionMajor() {
+        return versionMajor;
+    }
+
+    public int getVersionMinor() {
+        return versionMinor;
+    }
+
+    /**
+     * @return true if the EOS page of the Skeleton stream has been read, so that all its packets are known
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return the size of the Ogg file the index is valid for, or -1 before version 4.0
+     */
+    public long getSegmentLength() {
+        return segmentLength;
+    }
+
+    /**
+     * @return the offset of the first data page, after the header pages of all logical streams, or -1 before
+     * version 4.0
+     */
+    public long getContentOffset() {
+        return contentOffset;
+    }
+
+    /**
+     * @return the serial numbers of the logical streams described by a {@code fisbone} packet
+     */
+    public long[] getSerialNums() {
+        return bones.keySet().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    public long getGranuleRateNumerator(long serialNum) {
+        return getBone(serialNum).granuleRateNumerator;
+    }
+
+    public long getGranuleRateDenominator(long serialNum) {
+        return getBone(serialNum).granuleRateDenominator;
+    }
+
+    public long getBaseGranule(long serialNum) {
+        return getBone(serialNum).baseGranule;
+    }
+
+    public int getGranuleShift(long serialNum) {
+        return getBone(serialNum).granuleShift;
+    }
+
+    /**
+     * @return the number of header packets of the logical stream
+     */
+    public int getHeaderCount(long serialNum) {
+        return getBone(serialNum).headerCount;
+    }
+
+    /**
+     * @return the message header fields of the logical stream, e.g. {@code "Content-Type: audio/opus\r\n"}
+     */
+    public String getMessageHeaders(long serialNum) {
+        return getBone(serialNum).messageHeaders;
+    }
+
+    /**
+     * @return the serial numbers of the logical streams indexed by an {@code index} packet
+     */
+    public long[] getIndexedSerialNums() {
+        return indexes.keySet().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    public int getKeypointCount(long serialNum) {
+        Index index = indexes.get(serialNum);
+        return index == null ? 0 : index.offsets.length;
+    }
+
+    /**
+     * @return the offset of the page where the packet of the keypoint starts
+     */
+    public long getKeypointOffset(long serialNum, int keypoint) {
+        return getIndex(serialNum).offsets[keypoint];
+    }
+
+    /**
+     * @return the presentation time of the keypoint, in units of {@link OggSkeleton#getTimestampDenominator(long)}
+     */
+    public long getKeypointTime(long serialNum, int keypoint) {
+        return getIndex(serialNum).times[keypoint];
+    }
+
+    public long getTimestampDenominator(long serialNum) {
+        return getIndex(serialNum).timestampDenominator;
+    }
+
+    /**
+     * Convert the index to a {@link OggSeekIndex}, the keypoint times are converted to granule positions with the
+     * granule rates of the {@code fisbone} packets. Logical streams without a {@code fisbone} packet are left out.
+     *
+     * <p>A keypoint of the Skeleton index is the page where a packet starts at the keypoint time, it is taken for the
+     * end of the previous page of the logical stream, whose granule position is the start of the packet.</p>
+     *
+     * @return the seek index
+     */
+    public OggSeekIndex toSeekIndex() {
+        Map<Long, List<long[]>> keypoints = new LinkedHashMap<>();
+        for (Index index : indexes.values()) {
+            Bone bone = bones.get(index.serialNum);
+            if (bone == null || bone.granuleRateDenominator == 0 || index.timestampDenominator == 0) {
+                continue;
+            }
+            BigInteger divisor = BigInteger.valueOf(index.timestampDenominator)
+                    .multiply(BigInteger.valueOf(bone.granuleRateDenominator));
+            List<long[]> streamKeypoints = new ArrayList<>(index.offsets.length);
+            for (int i = 0; i < index.offsets.length; i++) {
+                long frames = bone.baseGranule + BigInteger.valueOf(index.times[i])
+                        .multiply(BigInteger.valueOf(bone.granuleRateNumerator)).divide(divisor).longValue();
+                streamKeypoints.add(new long[]{frames << bone.granuleShift, index.offsets[i]});
+            }
+            keypoints.put(index.serialNum, streamKeypoints);
+        }
+        return OggSeekIndex.of(keypoints, 0, segmentLength);
+    }
+
+    private Bone getBone(long serialNum) {
+        Bone bone = bones.get(serialNum);
+        if (bone == null) {
+            throw new IllegalArgumentException("No fisbone packet of the logical stream: " + serialNum);
+        }
+        return bone;
+    }
+
+    private Index getIndex(long serialNum) {
+        Index index = indexes.get(serialNum);
+        if (index == null) {
+            throw new IllegalArgumentException("No index packet of the logical stream: " + serialNum);
+        }
+        return index;
+    }
+
+    /**
+     * Copy an Ogg file, adding a Skeleton 4.0 stream indexing its Opus and Vorbis logical streams, e.g. when
+     * finalizing a file. Other logical streams are copied but not described.
+     *
+     * <p>A keypoint is added for the first data page of a logical stream and then for each page starting a packet
+     * at least {@code spacing} bytes after the previous keypoint. The data pages follow the header packets, 2 for Opus
+     * and 3 for Vorbis, which may span several pages. The Skeleton header pages are inserted before the first data
+     * page, the pages of the file are copied unchanged.</p>
+     *
+     * @param source  path of the Ogg file
+     * @param target  path of the new Ogg file
+     * @param spacing the minimum number of bytes between two keypoints of a logical stream
+     * @throws IOException if an I/O error occurs
+     * @throws InvalidOggException if the file already has a Skeleton stream
+     */
+    public static void writeIndexed(Path source, Path target, int spacing) throws IOException {
+        if (spacing <= 0) {
+            throw new IllegalArgumentException("Invalid spacing: " + spacing);
+        }
+        long size = Files.size(source);
+        Map<Long, Track> tracks = new LinkedHashMap<>();
+        long contentStart = -1;
+        try (OggStream oggStream = OggStream.map(source)) {
+            OggPageView page;
+            while ((page = oggStream.readPageView()) != null) {
+                long offset = oggStream.getPosition() - page.getPageSize();
+                if (isSkeletonPage(page)) {
+                    throw new InvalidOggException("The Ogg file already has a Skeleton stream");
+                }
+                Track track = page.isBOS() ? Track.of(page) : tracks.get(page.getSerialNum());
+                // The header packets of all the streams come before the content, a page of an unknown stream is
+                // content once it has a granule position
+                if (contentStart < 0 && !page.isBOS()
+                        && (track == null ? page.getGranulePosition() > 0 : track.isHeaderComplete())) {
+                    contentStart = offset;
+                }
+                if (track == null) {
+                    continue;
+                }
+                tracks.putIfAbsent(page.getSerialNum(), track);
+                if (!track.isHeaderComplete()) {
+                    track.addHeaderPackets(page);
+                } else if (!page.isContinued() && (track.keypoints.isEmpty()
+                        || offset - track.keypoints.get(track.keypoints.size() - 1)[0] >= spacing)) {
+                    track.keypoints.add(new long[]{offset, track.lastGranulePosition});
+                }
+                if (page.getGranulePosition() != -1) {
+                    track.lastGranulePosition = page.getGranulePosition();
+                }
+            }
+        }
+        if (contentStart < 0) {
+            contentStart = size;
+        }
+
+        long serialNum = newSerialNum(tracks);
+        int fisheadPageSize = OggPage.HEADER_SIZE + 1 + FISHEAD_SIZE;
+        // The keypoint offsets depend on the size of the Skeleton pages, which depends on the encoded offsets
+        List<byte[]> pages = new ArrayList<>();
+        int skeletonSize = 0;
+        while (true) {
+            pages.clear();
+            long shift = fisheadPageSize + skeletonSize;
+            int seqNum = 1;
+            for (Map.Entry<Long, Track> entry : tracks.entrySet()) {
+                seqNum = addPages(pages, serialNum, seqNum, entry.getValue().fisbone(entry.getKey()), false);
+            }
+            for (Map.Entry<Long, Track> entry : tracks.entrySet()) {
+                seqNum = addPages(pages, serialNum, seqNum, entry.getValue().index(entry.getKey(), shift), false);
+            }
+            addPages(pages, serialNum, seqNum, new byte[0], true);
+            int newSize = pages.stream().mapToInt(p -> p.length).sum();
+            if (newSize == skeletonSize) {
+                break;
+            }
+            skeletonSize = newSize;
+        }
+
+        ByteBuffer fishead = ByteBuffer.allocate(FISHEAD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        fishead.put(FISHEAD_SIGNATURE).putShort((short) 4).putShort((short) 0)
+                .putLong(0).putLong(1000).putLong(0).putLong(1000).put(new byte[20])
+                .putLong(size + fisheadPageSize + skeletonSize)
+                .putLong(contentStart + fisheadPageSize + skeletonSize);
+        OggPage fisheadPage = OggPage.empty();
+        fisheadPage.setBOS();
+        fisheadPage.setSerialNum(serialNum);
+        fisheadPage.addDataPacket(fishead.array());
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(out, fisheadPage.dump());
+            transfer(in, 0, contentStart, out);
+            for (byte[] page : pages) {
+                write(out, page);
+            }
+            transfer(in, contentStart, size - contentStart, out);
+        }
+    }
+
+    /**
+     * Lay out a packet into pages of the Skeleton stream.
+     *
+     * @return the next sequence number
+     */
+    private static int addPages(List<byte[]> pages, long serialNum, int seqNum, byte[] packet, boolean eos) {
+        int offset = 0;
+        boolean continued = false;
+        while (true) {
+            OggPage oggPage = OggPage.empty();
+            oggPage.setSerialNum(serialNum);
+            oggPage.setSeqNum(seqNum++);
+            if (continued) {
+                oggPage.setContinued();
+            }
+            if (packet.length - offset >= MAX_PAGE_PAYLOAD) {
+                oggPage.setGranulePosition(-1);
+                oggPage.addPartialDataPacket(Arrays.copyOfRange(packet, offset, offset + MAX_PAGE_PAYLOAD));
+                pages.add(oggPage.dump());
+                offset += MAX_PAGE_PAYLOAD;
+                continued = true;
+                continue;
+            }
+            if (eos) {
+                oggPage.setEOS();
+            }
+            oggPage.addDataPacket(packet, offset, packet.length - offset);
+            pages.add(oggPage.dump());
+            return seqNum;
+        }
+    }
+
+    private static long newSerialNum(Map<Long, Track> tracks) {
+        Random random = new Random();
+        long serialNum;
+        do {
+            serialNum = Integer.toUnsignedLong(random.nextInt());
+        } while (tracks.containsKey(serialNum));
+        return serialNum;
+    }
+
+    private static void write(FileChannel out, byte[] data) throws IOException {
+        ByteBuffer src = ByteBuffer.wrap(data);
+        while (src.hasRemaining()) {
+            out.write(src);
+        }
+    }
+
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        while (count > 0) {
+            long transferred = in.transferTo(position, count, out);
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
+    private static void putVariableLength(ByteArrayOutputStream out, long value) {
+        while (true) {
+            int b = (int) (value & 0x7f);
+            value >>>= 7;
+            if (value == 0) {
+                out.write(b | 0x80);
+                return;
+            }
+            out.write(b);
+        }
+    }
+
+    private static long getVariableLength(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = Byte.toUnsignedInt(buffer.get());
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) != 0) {
+                return value;
+            }
+        }
+        throw new InvalidOggException("Corrupted Ogg Skeleton index");
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, byte[] signature) {
+        if (buffer.remaining() < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (buffer.get(buffer.position() + i) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The {@code fisbone} packet of a logical stream.
+     */
+    private static class Bone {
+        private final long serialNum;
+        private final int headerCount;
+        private final long granuleRateNumerator;
+        private final long granuleRateDenominator;
+        private final long baseGranule;
+        private final int granuleShift;
+        private final String messageHeaders;
+
+        Bone(ByteBuffer buffer) {
+            int messageHeadersIndex = 8 + buffer.getInt(8);
+            serialNum = Integer.toUnsignedLong(buffer.getInt(12));
+            headerCount = buffer.getInt(16);
+            granuleRateNumerator = buffer.getLong(20);
+            granuleRateDenominator = buffer.getLong(28);
+            baseGranule = buffer.getLong(36);
+            granuleShift = Byte.toUnsignedInt(buffer.get(48));
+            if (messageHeadersIndex < FISBONE_SIZE || messageHeadersIndex > buffer.limit() || granuleShift > 63) {
+                throw new InvalidOggException("Corrupted Ogg Skeleton fisbone");
+            }
+            messageHeaders = new String(buffer.array(), messageHeadersIndex, buffer.limit() - messageHeadersIndex,
+                    StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The {@code index} packet of a logical stream.
+     */
+    private static class Index {
+        private final long serialNum;
+        private final long timestampDenominator;
+        private final long[] offsets;
+        private final long[] times;
+
+        Index(ByteBuffer buffer) {
+            serialNum = Integer.toUnsignedLong(buffer.getInt(6));
+            long keypointCount = buffer.getLong(10);
+            timestampDenominator = buffer.getLong(18);
+            // Each keypoint takes at least 2 bytes
+            if (keypointCount < 0 || keypointCount > (buffer.limit() - INDEX_HEADER_SIZE) / 2) {
+                throw new InvalidOggException("Corrupted Ogg Skeleton index");
+            }
+            offsets = new long[(int) keypointCount];
+            times = new long[(int) keypointCount];
+            buffer.position(INDEX_HEADER_SIZE);
+            long offset = 0;
+            long time = 0;
+            for (int i = 0; i < keypointCount; i++) {
+                offset += getVariableLength(buffer);
+                time += getVariableLength(buffer);
+                offsets[i] = offset;
+                times[i] = time;
+            }
+        }
+    }
+
+    /**
+     * A logical stream to describe while writing a Skeleton stream.
+     */
+    private static class Track {
+        private final long granuleRateNumerator;
+        private final int preroll;
+        private final String contentType;
+        private final int expectedHeaderCount;
+        private int headerCount;
+        // {offset, granule position of the previous page}
+        private final List<long[]> keypoints = new ArrayList<>();
+        private long lastGranulePosition;
+
+        private Track(long granuleRateNumerator, int preroll, String contentType, int expectedHeaderCount) {
+            this.granuleRateNumerator = granuleRateNumerator;
+            this.preroll = preroll;
+            this.contentType = contentType;
+            this.expectedHeaderCount = expectedHeaderCount;
+        }
+
+        /**
+         * @return the track of the logical stream started by a BOS page, or {@code null} if its codec isn't known
+         */
+        static Track of(OggPageView bosPage) {
+            if (bosPage.getPacketCount() == 0) {
+                return null;
+            }
+            ByteBuffer packet = bosPage.getPacket(0).order(ByteOrder.LITTLE_ENDIAN);
+            if (startsWith(packet, new byte[]{'O', 'p', 'u', 's', 'H', 'e', 'a', 'd'})) {
+                return new Track(48000, 3840, "audio/opus", 2);
+            } else if (packet.remaining() >= 16 && startsWith(packet, new byte[]{1, 'v', 'o', 'r', 'b', 'i', 's'})) {
+                return new Track(Integer.toUnsignedLong(packet.getInt(12)), 2, "audio/vorbis", 3);
+            }
+            return null;
+        }
+
+        /**
+         * @return true if all the header packets of the codec have been read
+         */
+        boolean isHeaderComplete() {
+            return headerCount >= expectedHeaderCount;
+        }
+
+        void addHeaderPackets(OggPageView page) {
+            headerCount += page.isCompleted() ? page.getPacketCount() : page.getPacketCount() - 1;
+        }
+
+        byte[] fisbone(long serialNum) {
+            byte[] messageHeaders = ("Content-Type: " + contentType + "\r\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(FISBONE_SIZE + messageHeaders.length)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(FISBONE_SIGNATURE).putInt(FISBONE_SIZE - 8).putInt((int) serialNum).putInt(headerCount)
+                    .putLong(granuleRateNumerator).putLong(1).putLong(0).putInt(preroll).put((byte) 0)
+                    .put(new byte[3]).put(messageHeaders);
+            return buffer.array();
+        }
+
+        /**
+         * The keypoint times are granule positions, with the granule rate as timestamp denominator.
+         */
+        byte[] index(long serialNum, long shift) {
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long firstTime = keypoints.isEmpty() ? 0 : keypoints.get(0)[1];
+            header.put(INDEX_SIGNATURE).putInt((int) serialNum).putLong(keypoints.size())
+                    .putLong(granuleRateNumerator).putLong(firstTime).putLong(lastGranulePosition);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(header.array(), 0, INDEX_HEADER_SIZE);
+            long offset = 0;
+            long time = 0;
+            for (long[] keypoint : keypoints) {
+                putVariableLength(out, keypoint[0] + shift - offset);
+                putVariableLength(out, keypoint[1] - time);
+                offset = keypoint[0] + shift;
+                time = keypoint[1];
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The bytes {@link OggStream} parses pages from, exposed as a window of a {@link ByteBuffer}.
+ *
+ * <p>The window holds the bytes {@code [pos(), buffer().limit())} of the source, the byte at {@code pos()} being
+ * at offset {@link #position()} of the whole source. Parsers use absolute gets on the buffer and must not rely on
+ * its position. {@link #fill(int)} may replace the buffer or move the bytes in it, so indexes must be recomputed
+ * from {@code pos()} after each call.</p>
+ */
+abstract class OggSource implements Closeable {
+    protected ByteBuffer buffer;
+    protected int pos;
+    protected long base;
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return the index in {@link #buffer()} of the next byte to read
+     */
+    int pos() {
+        return pos;
+    }
+
+    /**
+     * @return the number of bytes available in the window
+     */
+    int available() {
+        return buffer.limit() - pos;
+    }
+
+    /**
+     * @return the offset in the source of the next byte to read
+     */
+    long position() {
+        return base + pos;
+    }
+
+    /**
+     * Consume bytes of the window.
+     *
+     * @param n the number of bytes, not more than {@link #available()}
+     */
+    void skip(int n) {
+        if (n < 0 || n > available()) {
+            throw new IllegalArgumentException("Can't skip " + n + " bytes, " + available() + " available");
+        }
+        pos += n;
+    }
+
+    /**
+     * Consume bytes that may extend beyond the window without making them available. A seekable source seeks over
+     * them, other sources read and discard them.
+     *
+     * @param n the number of bytes
+     * @return false if the end of source is reached before, the source is at its end then
+     * @throws IOException if an I/O error occurs
+     */
+    boolean skipBytes(long n) throws IOException {
+        if (n <= available()) {
+            skip((int) n);
+            return true;
+        }
+        if (isSeekable()) {
+            long target = position() + n;
+            long size = size();
+            seek(Math.min(target, size));
+            return target <= size;
+        }
+        long remaining = n;
+        while (remaining > 0) {
+            if (available() == 0 && !fill(1)) {
+                return false;
+            }
+            int step = (int) Math.min(remaining, available());
+            skip(step);
+            remaining -= step;
+        }
+        return true;
+    }
+
+    /**
+     * Make at least {@code n} bytes available in the window, {@code n} must not be greater than
+     * {@link OggPage#MAX_PAGE_SIZE}.
+     *
+     * @param n the number of bytes
+     * @return false if the end of source is reached before, all the remaining bytes are available then
+     * @throws IOException if an I/O error occurs
+     */
+    abstract boolean fill(int n) throws IOException;
+
+    boolean isSeekable() {
+        return false;
+    }
+
+    /**
+     * @return the size of a seekable source
+     */
+    long size() throws IOException {
+        throw new UnsupportedOperationException("Not a seekable source");
+    }
+
+    /**
+     * Move a seekable source to the given offset.
+     *
+     * @param position the offset in the source
+     */
+    void seek(long position) throws IOException {
+        throw new UnsupportedOperationException("Not a seekable source");
+    }
+}
@@ -1,44 +1,325 @@
 package org.chenliang.oggus.ogg;
 
-import org.chenliang.oggus.util.IOUtil;
-import org.chenliang.oggus.util.LittleEndianDataInputStream;
-
-import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
 
 /**
  * An Ogg stream is made up of a sequence of Ogg pages. An Ogg stream stream could be multiplexed by several logical
  * Ogg stream which could be identified with the {@code serialNum}.
+ *
+ * <p>The page checksums are handled according to the {@link CheckSumPolicy}, which is
+ * {@link CheckSumPolicy#TRUSTED} by default.</p>
  */
-public class OggStream {
-    private LittleEndianDataInputStream in;
+public class OggStream implements Closeable {
+    public static final int DEFAULT_MAX_KEYPOINTS = 4096;
+    private static final int SCAN_BLOCK_SIZE = 16 * 1024;
+    private final OggSource source;
+    private CheckSumPolicy checkSumPolicy = CheckSumPolicy.TRUSTED;
+    private long verifiedPageCount;
+    private long failedPageCount;
+    private OggSeekIndex seekIndex;
+    private KeypointIndex keypointIndex;
+    private OggSkeleton skeleton;
+    private boolean recovery;
+    private long maxResyncDistance = Long.MAX_VALUE;
+    // Bytes skipped since the last page, or -1 after a seek
+    private long resyncDistance;
+    private long skippedByteCount;
+    private long resyncCount;
+    private long abandonedPageCount;
 
-    private OggStream(InputStream inputStream) {
-        this.in = new LittleEndianDataInputStream(inputStream);
+    OggStream(OggSource source) {
+        this.source = source;
     }
 
     /**
-     * Create {@code OggStream} from a file.
+     * Create {@code OggStream} from a file. Its sidecar seek index is loaded if there is a valid one, see
+     * {@link OggSeekIndex#sidecarOf(Path)}.
      *
      * @param filePath path of an Ogg file
      * @throws FileNotFoundException if the Ogg file doesn't exist.
      * @return OggStream
      */
     public static OggStream from(String filePath) throws FileNotFoundException {
-        return new OggStream(new BufferedInputStream(new FileInputStream(filePath)));
+        FileChannel channel = new FileInputStream(filePath).getChannel();
+        OggStream oggStream = new OggStream(new ChannelSource(channel, 0));
+        try {
+            oggStream.seekIndex = OggSeekIndex.loadSidecar(Paths.get(filePath), channel.size());
+        } catch (IOException e) {
+            // The sidecar index is optional
+        }
+        return oggStream;
     }
 
     /**
      * Create {@code OggStream} from an {@code InputStream}.
      *
+     * <p>The input stream is read in blocks of up to 16 KB, growing to the size of the largest page, so bytes after
+     * the last page read may already be consumed from it. Don't share the input stream with another reader expecting
+     * the bytes right after the Ogg data.</p>
+     *
      * @param inputStream the underlying input stream.
      * @return OggStream
      */
     public static OggStream from(InputStream inputStream) {
-        return new OggStream(inputStream);
+        return new OggStream(new InputStreamSource(inputStream));
+    }
+
+    /**
+     * Create {@code OggStream} from an {@code InputStream} read ahead by a background thread, which hides the latency
+     * of slow storage. The thread stops when the stream is closed.
+     *
+     * @param inputStream    the underlying input stream.
+     * @param readAheadDepth the number of 64 KB blocks read ahead
+     * @return OggStream
+     */
+    public static OggStream from(InputStream inputStream, int readAheadDepth) {
+        return new OggStream(new InputStreamSource(new ReadAheadInputStream(inputStream, readAheadDepth)));
+    }
+
+    /**
+     * Create {@code OggStream} from a channel. The channel is read in large blocks into a reusable direct buffer.
+     *
+     * @param channel the underlying channel, a {@link SeekableByteChannel} makes the stream seekable. Offsets are
+     *                relative to the start of a seekable channel, even if it is already positioned
+     * @throws IOException if the position of a seekable channel can't be read
+     * @return OggStream
+     */
+    public static OggStream from(ReadableByteChannel channel) throws IOException {
+        long position = channel instanceof SeekableByteChannel ? ((SeekableByteChannel) channel).position() : 0;
+        return new OggStream(new ChannelSource(channel, position));
+    }
+
+    /**
+     * Create {@code OggStream} from a memory-mapped file. Pages are parsed directly from the mapping, files larger
+     * than 2 GB are supported. Its sidecar seek index is loaded if there is a valid one, see
+     * {@link OggSeekIndex#sidecarOf(Path)}.
+     *
+     * @param path path of an Ogg file
+     * @throws IOException if the file can't be opened or mapped
+     * @return OggStream
+     */
+    public static OggStream map(Path path) throws IOException {
+        MappedSource source = new MappedSource(path);
+        OggStream oggStream = new OggStream(source);
+        oggStream.seekIndex = OggSeekIndex.loadSidecar(path, source.size());
+        return oggStream;
+    }
+
+    /**
+     * Create {@code OggStream} from a file read through a block cache, which may be shared by the streams of many
+     * files, e.g. {@link OggBlockCache#shared()}. Seeks into files read recently are then served from memory. Its
+     * sidecar seek index is loaded if there is a valid one, see {@link OggSeekIndex#sidecarOf(Path)}.
+     *
+     * @param path  path of an Ogg file
+     * @param cache the block cache
+     * @throws IOException if the file can't be opened
+     * @return OggStream
+     */
+    public static OggStream from(Path path, OggBlockCache cache) throws IOException {
+        CachedSource source = new CachedSource(path, Objects.requireNonNull(cache));
+        OggStream oggStream = new OggStream(source);
+        oggStream.seekIndex = OggSeekIndex.loadSidecar(path, source.size());
+        return oggStream;
+    }
+
+    /**
+     * Create a cursor over an indexed file: a stream reading the shared channel of the index with positioned reads,
+     * and seeking with its shared seek index, see {@link OggFileIndex}. Many cursors of the same index could be used
+     * concurrently by different threads, each cursor by one thread at a time. Closing the cursor doesn't close the
+     * channel.
+     *
+     * @param index the index of an Ogg file
+     * @return OggStream
+     */
+    public static OggStream from(OggFileIndex index) {
+        OggStream oggStream = new OggStream(new SharedChannelSource(index.getChannel(), index.getSize()));
+        oggStream.seekIndex = index.getSeekIndex();
+        return oggStream;
+    }
+
+    public CheckSumPolicy getCheckSumPolicy() {
+        return checkSumPolicy;
+    }
+
+    /**
+     * Set how the checksums of the following pages are handled.
+     *
+     * @param checkSumPolicy the checksum policy
+     */
+    public void setCheckSumPolicy(CheckSumPolicy checkSumPolicy) {
+        this.checkSumPolicy = Objects.requireNonNull(checkSumPolicy);
+    }
+
+    /**
+     * @return the number of pages whose checksum has been verified successfully
+     */
+    public long getVerifiedPageCount() {
+        return verifiedPageCount;
+    }
+
+    /**
+     * @return the number of pages whose checksum didn't match their content
+     */
+    public long getFailedPageCount() {
+        return failedPageCount;
+    }
+
+    public boolean isRecovery() {
+        return recovery;
+    }
+
+    /**
+     * Set whether damaged data is skipped instead of failing the stream. In recovery mode, a page with an
+     * unsupported version or truncated by the end of the stream is abandoned and the next capture pattern is
+     * searched, and a page found after skipping invalid data is only accepted if its checksum matches, whatever the
+     * {@link CheckSumPolicy}, so that a capture pattern occurring in the damaged data isn't taken for a page.
+     *
+     * @param recovery true to enable the recovery mode
+     */
+    public void setRecovery(boolean recovery) {
+        this.recovery = recovery;
+    }
+
+    public long getMaxResyncDistance() {
+        return maxResyncDistance;
+    }
+
+    /**
+     * Bound the invalid data skipped between two pages. When no page is found within that many bytes, the read
+     * throws {@link InvalidOggException} instead of scanning the rest of the stream. The stream is left after the
+     * bytes skipped, so reading again searches the next page with a new budget.
+     *
+     * @param maxResyncDistance the maximum number of bytes skipped, {@link Long#MAX_VALUE} by default
+     */
+    public void setMaxResyncDistance(long maxResyncDistance) {
+        if (maxResyncDistance < 0) {
+            throw new IllegalArgumentException("Invalid max resync distance: " + maxResyncDistance);
+        }
+        this.maxResyncDistance = maxResyncDistance;
+    }
+
+    /**
+     * @return the number of invalid bytes skipped to find the pages, not counting the search after a seek
+     */
+    public long getSkippedByteCount() {
+        return skippedByteCount;
+    }
+
+    /**
+     * @return the number of times invalid data has been skipped to find a page, not counting the search after a
+     * seek. A search going on after exceeding the max resync distance counts again.
+     */
+    public long getResyncCount() {
+        return resyncCount;
+    }
+
+    /**
+     * @return the number of capture patterns abandoned because they don't start a valid page, e.g. because of an
+     * unsupported version or a checksum mismatch
+     */
+    public long getAbandonedPageCount() {
+        return abandonedPageCount;
+    }
+
+    public OggSeekIndex getSeekIndex() {
+        return seekIndex;
+    }
+
+    /**
+     * Set the seek index used by {@link OggStream#seekToGranule(long, long)}, it must have been built from the
+     * same file.
+     *
+     * @param seekIndex the seek index, or {@code null} to search the pages
+     */
+    public void setSeekIndex(OggSeekIndex seekIndex) {
+        this.seekIndex = seekIndex;
+    }
+
+    /**
+     * Get the Ogg Skeleton stream detected while reading the pages, its packets are parsed as its pages are read,
+     * even by the methods reading other logical streams. Once it is completed, its index is used as the seek index
+     * if there isn't one already and it matches the size of the file, see {@link OggSkeleton#toSeekIndex()}.
+     *
+     * @return the Skeleton stream, or {@code null} if no Skeleton BOS page has been read
+     */
+    public OggSkeleton getSkeleton() {
+        return skeleton;
+    }
+
+    /**
+     * Read the rest of the Skeleton stream of a seekable stream, its pages are usually right after the header pages
+     * of the other logical streams. The position is restored afterwards.
+     *
+     * <p>The Skeleton pages come before the content, so the search stops at the content offset of the Skeleton
+     * header if it has one, or else at the first page of another logical stream with a granule position.</p>
+     *
+     * @return the Skeleton stream, or {@code null} if no Skeleton BOS page has been read
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the stream isn't seekable
+     */
+    public OggSkeleton readSkeleton() throws IOException {
+        checkSeekable();
+        if (skeleton == null || skeleton.isCompleted()) {
+            return skeleton;
+        }
+        long position = source.position();
+        long skeletonSerialNum = skeleton.getSerialNum();
+        long contentOffset = skeleton.getContentOffset();
+        while (skeleton != null && !skeleton.isCompleted()
+                && (contentOffset < 0 || source.position() < contentOffset)) {
+            // The Skeleton pages are parsed by nextPage()
+            OggPageView view = readPageView(header -> header.getSerialNum() == skeletonSerialNum
+                    || header.getGranulePosition() > 0);
+            if (view == null || view.getSerialNum() != skeletonSerialNum) {
+                break;
+            }
+        }
+        source.seek(position);
+        return skeleton;
+    }
+
+    /**
+     * Record keypoints of the pages read, so that {@link OggStream#seekToGranule(long, long)} moves back to data
+     * already read without searching it. The memory used is bounded: when a logical stream has recorded the given
+     * number of keypoints, every other one is dropped and the following ones are recorded further apart.
+     *
+     * @param maxKeypoints the maximum number of keypoints of each logical stream, about 20 bytes each, or 0 to stop
+     *                     recording and drop the keypoints
+     */
+    public void setKeypointRecording(int maxKeypoints) {
+        keypointIndex = maxKeypoints == 0 ? null : new KeypointIndex(maxKeypoints);
+    }
+
+    /**
+     * @param serialNum the serial number of the logical stream
+     * @return the number of keypoints recorded for the logical stream
+     */
+    public int getRecordedKeypointCount(long serialNum) {
+        return keypointIndex == null ? 0 : keypointIndex.getCount(serialNum);
+    }
+
+    /**
+     * Get the offset of the next byte to read in the underlying stream or file.
+     *
+     * @return the offset in bytes
+     */
+    public long getPosition() {
+        return source.position();
     }
 
     /**
@@ -47,76 +328,621 @@ public class OggStream {
      *
      * @return the next Ogg page, or {@code null} if there isn't page left
      * @throws IOException if an I/O error occurs
+     * @throws InvalidOggException if the checksum doesn't match and the policy is {@link CheckSumPolicy#STRICT}, or
+     *                             no page is found within the max resync distance
      */
     public OggPage readPage() throws IOException {
-        if (hasNextPage()) {
-            return nextPage();
+        OggPageView view = readPageView();
+        return view == null ? null : view.toOggPage();
+    }
+
+    /**
+     * Read an Ogg page into a reused {@link OggPage}, its previous content is cleared. Once the arrays of the page
+     * are large enough, reading pages this way doesn't allocate.
+     * This method will skip invalid data.
+     *
+     * @param reuse the page to read into
+     * @return {@code reuse}, or {@code null} if there isn't page left
+     * @throws IOException if an I/O error occurs
+     * @throws InvalidOggException if the checksum doesn't match and the policy is {@link CheckSumPolicy#STRICT}, or
+     *                             no page is found within the max resync distance
+     */
+    public OggPage readPage(OggPage reuse) throws IOException {
+        Objects.requireNonNull(reuse);
+        OggPageView view = readPageView();
+        if (view == null) {
+            return null;
         }
-        return null;
+        reuse.load(view);
+        return reuse;
     }
 
     /**
      * Read an Ogg page with the given serial number
-     * This method will skip invalid data.
+     * This method will skip invalid data, and the pages of other logical streams, see
+     * {@link OggStream#readPageView(Predicate)}.
      *
      * @param serialNum the given serial number
      * @return the next Ogg page, or {@code null} if there isn't page left
      * @throws IOException if an I/O error occurs
      */
     public OggPage readPage(long serialNum) throws IOException {
+        OggPageView view = readPageView(header -> header.getSerialNum() == serialNum);
+        return view == null ? null : view.toOggPage();
+    }
+
+    /**
+     * Read an Ogg page with the given serial number into a reused {@link OggPage}, see
+     * {@link OggStream#readPage(long)} and {@link OggStream#readPage(OggPage)}.
+     *
+     * @param serialNum the given serial number
+     * @param reuse     the page to read into
+     * @return {@code reuse}, or {@code null} if there isn't page left
+     * @throws IOException if an I/O error occurs
+     */
+    public OggPage readPage(long serialNum, OggPage reuse) throws IOException {
+        Objects.requireNonNull(reuse);
+        OggPageView view = readPageView(header -> header.getSerialNum() == serialNum);
+        if (view == null) {
+            return null;
+        }
+        reuse.load(view);
+        return reuse;
+    }
+
+    /**
+     * Read an Ogg page without copying it.
+     * This method will skip invalid data.
+     *
+     * <p>For a stream created with {@link OggStream#map(Path)}, the view is backed by the mapping and stays valid.
+     * Otherwise it is backed by the internal read buffer and is only valid until the next read.</p>
+     *
+     * @return a view of the next Ogg page, or {@code null} if there isn't page left
+     * @throws IOException if an I/O error occurs
+     * @throws InvalidOggException if the checksum doesn't match and the policy is {@link CheckSumPolicy#STRICT}, or
+     *                             no page is found within the max resync distance
+     */
+    public OggPageView readPageView() throws IOException {
         while (hasNextPage()) {
-            OggPage oggPage = nextPage();
-            if (oggPage.getSerialNum() == serialNum) {
-                return oggPage;
+            OggPageView view = nextPage();
+            if (view != null) {
+                return view;
             }
         }
         return null;
     }
 
-    private boolean hasNextPage() throws IOException {
-        int posOfPattern = 0;
-        while (posOfPattern < OggPage.CAPTURE_PATTERN.length) {
-            int b = in.read();
-            if (b == -1) {
-                return false;
+    /**
+     * Read the next Ogg page accepted by a filter without copying it, see {@link OggStream#readPageView()}.
+     * This method will skip invalid data.
+     *
+     * <p>The filter is given the header of each page. With {@link CheckSumPolicy#TRUSTED}, the payloads of the pages
+     * it rejects are skipped as {@link OggStream#skimPage()} does. Otherwise the pages it rejects are verified as the
+     * pages accepted, so a corrupted page of another logical stream is counted as failed and can't make the stream
+     * skip valid pages.</p>
+     *
+     * @param filter the filter of the pages to read
+     * @return a view of the next Ogg page accepted, or {@code null} if there isn't page left
+     * @throws IOException if an I/O error occurs
+     * @throws InvalidOggException if the checksum doesn't match and the policy is {@link CheckSumPolicy#STRICT}, or
+     *                             no page is found within the max resync distance
+     */
+    public OggPageView readPageView(Predicate<OggPageHeader> filter) throws IOException {
+        while (hasNextPage()) {
+            if (!fillHeader() || !acceptCandidate()) {
+                continue;
+            }
+            OggPageHeader header = OggPageHeader.from(source.buffer(), source.pos(), source.position());
+            if (!filter.test(header)) {
+                if (checkSumPolicy == CheckSumPolicy.TRUSTED && !isSkeletonPage(header)) {
+                    skipPage(header);
+                } else {
+                    nextPage();
+                }
+                continue;
+            }
+            OggPageView view = nextPage();
+            if (view != null) {
+                return view;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read the header of an Ogg page and skip its payload.
+     * This method will skip invalid data.
+     *
+     * <p>Only the header and the lace values are read: a seekable stream seeks over the payload, other streams
+     * discard it without parsing. The checksum can't be verified, so the {@link CheckSumPolicy} doesn't apply.</p>
+     *
+     * @return the header of the next Ogg page, or {@code null} if there isn't page left
+     * @throws IOException if an I/O error occurs
+     * @throws InvalidOggException if no page is found within the max resync distance
+     */
+    public OggPageHeader skimPage() throws IOException {
+        while (hasNextPage()) {
+            if (!fillHeader() || !acceptCandidate()) {
+                continue;
             }
-            if (b == OggPage.CAPTURE_PATTERN[posOfPattern]) {
-                posOfPattern++;
+            OggPageHeader header = OggPageHeader.from(source.buffer(), source.pos(), source.position());
+            skipPage(header);
+            return header;
+        }
+        return null;
+    }
+
+    /**
+     * Skip the page whose header and lace values are available.
+     */
+    private void skipPage(OggPageHeader header) throws IOException {
+        source.skip(OggPage.HEADER_SIZE + header.getSegCount());
+        if (!source.skipBytes(header.getPayloadLength())) {
+            throw new EOFException("Truncated Ogg page");
+        }
+        resyncDistance = 0;
+        if (keypointIndex != null) {
+            keypointIndex.record(header.getSerialNum(), header.getGranulePosition(), header.getSeqNum(),
+                    source.position());
+        }
+    }
+
+    /**
+     * @return true if the stream is backed by a file, so that it could be scanned from its end
+     */
+    public boolean isSeekable() {
+        return source.isSeekable();
+    }
+
+    /**
+     * Move a seekable stream to a byte offset, the next read searches a capture pattern from there.
+     *
+     * @param position the offset in the file
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the stream isn't seekable
+     */
+    public void seek(long position) throws IOException {
+        checkSeekable();
+        if (position < 0 || position > source.size()) {
+            throw new IllegalArgumentException("Invalid position: " + position);
+        }
+        source.seek(position);
+        resyncDistance = -1;
+    }
+
+    /**
+     * Move a seekable stream right after the last page of a logical stream whose granule position is less than the
+     * given one, so that the next page of the logical stream contains the data at the granule position.
+     *
+     * <p>The page is located by interpolation search: a byte offset is estimated from the granule positions and
+     * offsets of the bounding pages, the first page of the logical stream after it is read to narrow the bounds, and
+     * so on. The search falls back to bisection when an estimate doesn't halve the bounds, so only O(log n) pages
+     * are read.</p>
+     *
+     * <p>With a {@link OggSeekIndex} or recorded keypoints around the granule position, see
+     * {@link OggStream#setKeypointRecording(int)}, only the pages after the keypoint before it are read instead.</p>
+     *
+     * @param serialNum       the serial number of the logical stream
+     * @param granulePosition the granule position to seek to
+     * @return the granule position of the page before the new position, or -1 if there isn't any page of the logical
+     * stream before the granule position, the stream is moved to its beginning then
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the stream isn't seekable
+     */
+    public long seekToGranule(long serialNum, long granulePosition) throws IOException {
+        checkSeekable();
+        return seekToGranule(serialNum, granulePosition, 0, source.size());
+    }
+
+    /**
+     * Move a seekable stream as {@link OggStream#seekToGranule(long, long)} does, only searching the pages starting
+     * in a byte range, e.g. a link of a chained file which contains all the pages of the logical stream.
+     *
+     * @param serialNum       the serial number of the logical stream
+     * @param granulePosition the granule position to seek to
+     * @param begin           the offset of the first page of the range
+     * @param end             the offset right after the last page of the range
+     * @return the granule position of the page before the new position, or -1 if there isn't any page of the logical
+     * stream before the granule position, the stream is moved to {@code begin} then
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the stream isn't seekable
+     */
+    public long seekToGranule(long serialNum, long granulePosition, long begin, long end) throws IOException {
+        checkSeekable();
+        if (begin < 0 || begin > end || end > source.size()) {
+            throw new IllegalArgumentException("Invalid range: [" + begin + ", " + end + ")");
+        }
+        long rangeBegin = begin;
+        if (seekIndex != null && seekIndex.contains(serialNum)) {
+            int keypoint = seekIndex.findKeypoint(serialNum, granulePosition);
+            if (keypoint < 0) {
+                // The first page with a granule position is a keypoint, no page of the stream is before
+                source.seek(rangeBegin);
+                return -1;
+            }
+            return seekFromKeypoint(serialNum, granulePosition, seekIndex.getOffset(serialNum, keypoint),
+                    seekIndex.getGranulePosition(serialNum, keypoint));
+        }
+        if (keypointIndex != null) {
+            // Only if a keypoint after the granule position bounds the pages to read
+            int keypoint = keypointIndex.find(serialNum, granulePosition);
+            if (keypoint >= 0 && keypoint < keypointIndex.getCount(serialNum) - 1) {
+                return seekFromKeypoint(serialNum, granulePosition, keypointIndex.getOffset(serialNum, keypoint),
+                        keypointIndex.getGranulePosition(serialNum, keypoint));
+            }
+        }
+        long beginGranule = 0;
+        OggPageHeader lastPage = findLastPage(header -> header.getSerialNum() == serialNum, begin, end);
+        long endGranule = lastPage == null ? -1 : lastPage.getGranulePosition();
+        OggPageHeader best = null;
+        boolean bisect = false;
+        while (begin < end) {
+            long offset;
+            if (bisect || endGranule <= beginGranule || granulePosition <= beginGranule
+                    || granulePosition >= endGranule) {
+                offset = begin + (end - begin) / 2;
             } else {
-                posOfPattern = (b == OggPage.CAPTURE_PATTERN[0] ? 1 : 0);
+                double ratio = (double) (granulePosition - beginGranule) / (endGranule - beginGranule);
+                offset = begin + (long) ((end - begin) * ratio);
             }
+            offset = Math.min(Math.max(offset, begin), end - 1);
+            long range = end - begin;
+
+            OggPageHeader page = findNextPage(serialNum, offset, end);
+            if (page != null && page.getGranulePosition() < granulePosition) {
+                best = page;
+                begin = page.getOffset() + page.getPageSize();
+                beginGranule = page.getGranulePosition();
+            } else {
+                // No page before the granule position starts in [offset, end)
+                end = offset;
+                if (page != null) {
+                    endGranule = page.getGranulePosition();
+                }
+            }
+            bisect = !bisect && end - begin > range / 2;
+        }
+        if (best == null) {
+            source.seek(rangeBegin);
+            return -1;
+        }
+        source.seek(best.getOffset() + best.getPageSize());
+        return best.getGranulePosition();
+    }
+
+    /**
+     * Read the pages from a keypoint before the granule position, up to the first page at the granule position.
+     *
+     * @param position            the offset right after the page of the keypoint
+     * @param pageGranulePosition the granule position of the keypoint
+     */
+    private long seekFromKeypoint(long serialNum, long granulePosition, long position, long pageGranulePosition)
+            throws IOException {
+        source.seek(position);
+        OggPageHeader header;
+        while ((header = skimPage()) != null) {
+            if (header.getSerialNum() != serialNum || header.getGranulePosition() == -1) {
+                continue;
+            }
+            if (header.getGranulePosition() >= granulePosition) {
+                break;
+            }
+            position = header.getOffset() + header.getPageSize();
+            pageGranulePosition = header.getGranulePosition();
+        }
+        source.seek(position);
+        return pageGranulePosition;
+    }
+
+    /**
+     * Find the last page of a logical stream with a granule position, by scanning a seekable stream backwards from
+     * its end. Only the tail of the file is read, a truncated or corrupted last page is ignored, as well as the pages
+     * of other logical streams. The position of the stream is left unchanged.
+     *
+     * @param serialNum the serial number of the logical stream
+     * @return the header of the last page, or {@code null} if there isn't any
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the stream isn't seekable
+     */
+    public OggPageHeader findLastPage(long serialNum) throws IOException {
+        checkSeekable();
+        return findLastPage(header -> header.getSerialNum() == serialNum, 0, source.size());
+    }
+
+    /**
+     * Find the last page with a granule position whatever its logical stream, see {@link #findLastPage(long)}.
+     *
+     * @return the header of the last page, or {@code null} if there isn't any
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the stream isn't seekable
+     */
+    public OggPageHeader findLastPage() throws IOException {
+        checkSeekable();
+        return findLastPage(header -> true, 0, source.size());
+    }
+
+    /**
+     * @return the header of the last valid page accepted by the filter with a granule position starting in
+     * {@code [begin, end)}, or {@code null} if there isn't any
+     */
+    private OggPageHeader findLastPage(Predicate<OggPageHeader> filter, long begin, long end) throws IOException {
+        long position = source.position();
+        try {
+            while (end > begin) {
+                long start = Math.max(begin, end - SCAN_BLOCK_SIZE);
+                List<Long> candidates = findCapturePatterns(start, end);
+                for (int i = candidates.size() - 1; i >= 0; i--) {
+                    OggPageHeader header = checkPageAt(candidates.get(i));
+                    if (header != null && filter.test(header) && header.getGranulePosition() != -1) {
+                        return header;
+                    }
+                }
+                end = start;
+            }
+            return null;
+        } finally {
+            source.seek(position);
+        }
+    }
+
+    /**
+     * @return the header of the first valid page of a logical stream with a granule position starting in
+     * {@code [from, to)}, or {@code null} if there isn't any
+     */
+    private OggPageHeader findNextPage(long serialNum, long from, long to) throws IOException {
+        long next = from;
+        for (long start = from; start < to; start += SCAN_BLOCK_SIZE) {
+            List<Long> candidates = findCapturePatterns(start, Math.min(to, start + SCAN_BLOCK_SIZE));
+            for (long candidate : candidates) {
+                if (candidate < next) {
+                    // Inside the payload of the previous page
+                    continue;
+                }
+                OggPageHeader header = checkPageAt(candidate);
+                if (header == null) {
+                    continue;
+                }
+                if (header.getSerialNum() == serialNum && header.getGranulePosition() != -1) {
+                    return header;
+                }
+                next = candidate + header.getPageSize();
+            }
+        }
+        return null;
+    }
+
+    private void checkSeekable() {
+        if (!source.isSeekable()) {
+            throw new UnsupportedOperationException("Not a seekable stream");
         }
-        return true;
     }
 
-    private OggPage nextPage() throws IOException {
-        OggPage oggPage = OggPage.empty();
-        int version = in.readUnsignedByte();
+    /**
+     * @return the offsets of the capture patterns starting in {@code [start, end)}, in order
+     */
+    private List<Long> findCapturePatterns(long start, long end) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        source.seek(start);
+        source.fill((int) (end - start) + OggPage.CAPTURE_PATTERN.length - 1);
+        ByteBuffer buffer = source.buffer();
+        int pos = source.pos();
+        int to = pos + (int) (end - start);
+        int found = OggSync.findCapturePattern(buffer, pos, to);
+        while (found >= 0) {
+            offsets.add(start + found - pos);
+            found = OggSync.findCapturePattern(buffer, found + 1, to);
+        }
+        return offsets;
+    }
+
+    /**
+     * @return the header of the valid page at the offset, or {@code null} if it isn't complete or doesn't match its
+     * checksum
+     */
+    private OggPageHeader checkPageAt(long offset) throws IOException {
+        source.seek(offset);
+        if (!source.fill(OggPage.HEADER_SIZE)) {
+            return null;
+        }
+        int segCount = Byte.toUnsignedInt(source.buffer().get(source.pos() + OggPage.HEADER_SIZE - 1));
+        if (!source.fill(OggPage.HEADER_SIZE + segCount)
+                || !source.fill(OggPages.getPageSize(source.buffer(), source.pos()))
+                || OggPages.checkPage(source.buffer(), source.pos()) < 0) {
+            return null;
+        }
+        return OggPageHeader.from(source.buffer(), source.pos(), offset);
+    }
+
+    /**
+     * Close the underlying stream or file.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    /**
+     * Move to the next capture pattern.
+     *
+     * @return false if the end of stream is reached before
+     * @throws InvalidOggException if no capture pattern is found within the max resync distance
+     */
+    private boolean hasNextPage() throws IOException {
+        int patternLen = OggPage.CAPTURE_PATTERN.length;
+        while (source.fill(patternLen)) {
+            ByteBuffer buffer = source.buffer();
+            int pos = source.pos();
+            int to = buffer.limit();
+            if (resyncDistance >= 0 && maxResyncDistance - resyncDistance < to - pos) {
+                // Don't search past the max resync distance
+                to = pos + (int) (maxResyncDistance - resyncDistance) + 1;
+            }
+            int found = OggSync.findCapturePattern(buffer, pos, to);
+            if (found >= 0) {
+                skipInvalid(found - pos);
+                return true;
+            }
+            // Keep the bytes that could be the beginning of a capture pattern, even within the max resync distance:
+            // a pattern straddling the end of the window isn't ruled out yet
+            skipInvalid(Math.min(to, buffer.limit() - (patternLen - 1)) - pos);
+        }
+        return false;
+    }
+
+    /**
+     * Parse the page at a capture pattern.
+     *
+     * @return the page, or {@code null} if it has been abandoned
+     */
+    private OggPageView nextPage() throws IOException {
+        if (!fillHeader() || !acceptCandidate()) {
+            return null;
+        }
+        int pageSize = OggPages.getPageSize(source.buffer(), source.pos());
+        if (!source.fill(pageSize)) {
+            abandonTruncatedPage("Truncated Ogg page");
+            return null;
+        }
+
+        OggPageView view = OggPageView.wrap(source.buffer(), source.pos());
+        if (checkSumPolicy != CheckSumPolicy.TRUSTED) {
+            if (!view.isCheckSumValid()) {
+                failedPageCount++;
+                if (checkSumPolicy == CheckSumPolicy.STRICT) {
+                    abandonedPageCount++;
+                    source.skip(pageSize);
+                    resyncDistance = 0;
+                    throw new InvalidOggException("Ogg page checksum mismatch");
+                }
+                // Resync from the byte right after the 'O' of the rejected capture pattern
+                abandonPage();
+                return null;
+            }
+            verifiedPageCount++;
+        }
+        resyncDistance = 0;
+        if (keypointIndex != null) {
+            keypointIndex.record(view.getSerialNum(), view.getGranulePosition(), view.getSeqNum(),
+                    source.position() + pageSize);
+        }
+        if (view.isBOS() || skeleton != null && view.getSerialNum() == skeleton.getSerialNum()) {
+            parseSkeleton(view);
+        }
+        source.skip(pageSize);
+        return view;
+    }
+
+    /**
+     * @return true if the page may be a page of the Skeleton stream not parsed yet
+     */
+    private boolean isSkeletonPage(OggPageHeader header) {
+        return skeleton == null ? header.isBOS()
+                : header.getSerialNum() == skeleton.getSerialNum() && !skeleton.isCompleted();
+    }
+
+    private void parseSkeleton(OggPageView view) throws IOException {
+        if (skeleton == null) {
+            if (!OggSkeleton.isSkeletonPage(view)) {
+                return;
+            }
+            skeleton = new OggSkeleton(view.getSerialNum());
+        } else if (skeleton.isCompleted()) {
+            return;
+        }
+        try {
+            skeleton.accept(view);
+        } catch (InvalidOggException e) {
+            // The Skeleton stream is optional
+            skeleton = null;
+            return;
+        }
+        if (skeleton.isCompleted() && seekIndex == null && skeleton.getSegmentLength() >= 0
+                && (!source.isSeekable() || skeleton.getSegmentLength() == source.size())) {
+            seekIndex = skeleton.toSeekIndex();
+        }
+    }
+
+    /**
+     * Make the header and the lace values of the page at a capture pattern available.
+     *
+     * @return false if the page has been abandoned in recovery mode
+     */
+    private boolean fillHeader() throws IOException {
+        if (!source.fill(OggPage.HEADER_SIZE)) {
+            return abandonTruncatedPage("Truncated Ogg page header");
+        }
+        ByteBuffer buffer = source.buffer();
+        int version = Byte.toUnsignedInt(buffer.get(source.pos() + 4));
         if (version != 0) {
+            abandonPage();
+            if (recovery) {
+                return false;
+            }
             throw new InvalidOggException("Unsupported Ogg page version: " + version);
         }
-        oggPage.setFlag(in.readUnsignedByte());
-        oggPage.setGranulePosition(in.readLong());
-        oggPage.setSerialNum(Integer.toUnsignedLong(in.readInt()));
-        oggPage.setSeqNum(Integer.toUnsignedLong(in.readInt()));
-        oggPage.setCheckSum(in.readInt());
-        int segCount = in.readUnsignedByte();
-        byte[] laceValues = IOUtil.readNBytes(in, segCount);
-
-        int packetLen = 0;
-        for (byte laceValue : laceValues) {
-            int segLen = Byte.toUnsignedInt(laceValue);
-            packetLen += segLen;
-            if (segLen < OggPage.MAX_LACE_VALUE) {
-                byte[] data = IOUtil.readNBytes(in, packetLen);
-                oggPage.addDataPacket(data);
-                packetLen = 0;
-            }
-        }
-        if (packetLen != 0) {
-            byte[] data = IOUtil.readNBytes(in, packetLen);
-            oggPage.addPartialDataPacket(data);
-        }
-        return oggPage;
+        int segCount = Byte.toUnsignedInt(buffer.get(source.pos() + OggPage.HEADER_SIZE - 1));
+        if (!source.fill(OggPage.HEADER_SIZE + segCount)) {
+            return abandonTruncatedPage("Truncated Ogg page lace values");
+        }
+        return true;
+    }
+
+    /**
+     * In recovery mode, check the checksum of a page found after skipping invalid data.
+     *
+     * @return false if the page has been abandoned
+     */
+    private boolean acceptCandidate() throws IOException {
+        if (!recovery || resyncDistance == 0) {
+            return true;
+        }
+        int pageSize = OggPages.getPageSize(source.buffer(), source.pos());
+        if (source.fill(pageSize) && OggPages.checkPage(source.buffer(), source.pos()) == pageSize) {
+            return true;
+        }
+        abandonPage();
+        return false;
+    }
+
+    /**
+     * Abandon a page truncated by the end of the stream in recovery mode.
+     *
+     * @return false
+     * @throws EOFException if the stream isn't in recovery mode
+     */
+    private boolean abandonTruncatedPage(String message) throws IOException {
+        if (!recovery) {
+            throw new EOFException(message);
+        }
+        abandonPage();
+        return false;
+    }
+
+    /**
+     * Resync from the byte right after the 'O' of the capture pattern of an invalid page.
+     */
+    private void abandonPage() {
+        if (resyncDistance >= 0) {
+            abandonedPageCount++;
+        }
+        skipInvalid(1);
+    }
+
+    private void skipInvalid(int length) {
+        source.skip(length);
+        if (length == 0 || resyncDistance < 0) {
+            return;
+        }
+        if (resyncDistance == 0) {
+            resyncCount++;
+        }
+        skippedByteCount += length;
+        resyncDistance += length;
+        if (resyncDistance > maxResyncDistance) {
+            resyncDistance = 0;
+            throw new InvalidOggException("No valid Ogg page within " + maxResyncDistance + " bytes");
+        }
     }
 }
@@ -0,0 +1,78 @@
+package org.chenliang.oggus.ogg;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Locate Ogg pages in a buffer, e.g. to start reading at a random offset or to recover from corrupted data.
+ *
+ * <p>The capture pattern is searched 8 bytes at a time: each 8-byte word is tested for an {@code 'O'} byte with
+ * SWAR (SIMD within a register) arithmetic, only the words containing one are checked byte by byte.</p>
+ */
+public class OggSync {
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long CAPTURE_PATTERN_O = ONES * 'O';
+
+    private OggSync() {
+    }
+
+    /**
+     * Find the first capture pattern {@code "OggS"} starting in {@code [from, to)} and entirely before the limit of
+     * the buffer. Nothing else is checked.
+     *
+     * @param buffer the buffer, heap or direct, of any byte order
+     * @param from   the absolute index to search from
+     * @param to     the absolute index to search to, exclusive
+     * @return the index of the capture pattern, or -1 if not found
+     */
+    public static int findCapturePattern(ByteBuffer buffer, int from, int to) {
+        int limit = buffer.limit();
+        int end = Math.min(to, limit - OggPage.CAPTURE_PATTERN.length + 1);
+        boolean littleEndian = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+        int i = from;
+        while (i < end) {
+            if (i + 8 <= limit) {
+                long x = buffer.getLong(i) ^ CAPTURE_PATTERN_O;
+                long zeroBytes = (x - ONES) & ~x & HIGHS;
+                if (zeroBytes == 0) {
+                    i += 8;
+                    continue;
+                }
+                // The flag of the first 'O' in memory order is always exact, flags after it may not be
+                i += (littleEndian ? Long.numberOfTrailingZeros(zeroBytes) : Long.numberOfLeadingZeros(zeroBytes)) >>> 3;
+                if (i >= end) {
+                    break;
+                }
+            } else if (buffer.get(i) != OggPage.CAPTURE_PATTERN[0]) {
+                i++;
+                continue;
+            }
+            if (OggPages.isCapturePattern(buffer, i)) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the first valid page starting in {@code [from, to)}: a capture pattern followed by a supported version,
+     * complete before the limit of the buffer and with a matching checksum.
+     *
+     * @param buffer the buffer, heap or direct, of any byte order
+     * @param from   the absolute index to search from
+     * @param to     the absolute index to search to, exclusive
+     * @return the index of the page, or -1 if not found
+     */
+    public static int findPage(ByteBuffer buffer, int from, int to) {
+        int index = findCapturePattern(buffer, from, to);
+        while (index >= 0) {
+            if (OggPages.checkPage(buffer, index) > 0) {
+                return index;
+            }
+            index = findCapturePattern(buffer, index + 1, to);
+        }
+        return -1;
+    }
+}
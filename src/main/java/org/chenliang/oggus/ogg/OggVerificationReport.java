@@ -0,0 +1,119 @@
+package org.chenliang.oggus.ogg;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of verifying an Ogg file with {@link OggVerifier}.
+ */
+public class OggVerificationReport {
+    private final Path file;
+    private final long fileSize;
+    private final long pageCount;
+    private final List<Problem> problems;
+
+    OggVerificationReport(Path file, long fileSize, long pageCount, List<Problem> problems) {
+        this.file = file;
+        this.fileSize = fileSize;
+        this.pageCount = pageCount;
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * @return the number of valid pages
+     */
+    public long getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * @return the problems found, ordered by offset
+     */
+    public List<Problem> getProblems() {
+        return problems;
+    }
+
+    /**
+     * @return true if no problem is found
+     */
+    public boolean isValid() {
+        return problems.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return file + ": " + pageCount + " pages, " + problems.size() + " problems";
+    }
+
+    /**
+     * A problem found at an offset of the file.
+     */
+    public static class Problem {
+        private final Type type;
+        private final long offset;
+        private final long length;
+        private final long serialNum;
+
+        Problem(Type type, long offset, long length, long serialNum) {
+            this.type = type;
+            this.offset = offset;
+            this.length = length;
+            this.serialNum = serialNum;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * @return the offset of the corrupt region or of the offending page
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return the length of the corrupt region, or the size of the offending page for
+         * {@link Type#SEQUENCE_GAP} and {@link Type#GRANULE_REGRESSION}
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * @return the serial number of the offending page, or -1 for corrupt regions
+         */
+        public long getSerialNum() {
+            return serialNum;
+        }
+
+        @Override
+        public String toString() {
+            return type + " at " + offset + " (" + length + " bytes)";
+        }
+    }
+
+    /**
+     * Kinds of problem:
+     * <ul>
+     *    <li>JUNK: bytes that don't belong to any page</li>
+     *    <li>CHECKSUM_MISMATCH: a page whose checksum doesn't match, the region extends up to the next valid page</li>
+     *    <li>UNSUPPORTED_VERSION: a capture pattern followed by a version other than 0</li>
+     *    <li>TRUNCATED_PAGE: a page cut by the end of the file</li>
+     *    <li>SEQUENCE_GAP: a page whose sequence number doesn't follow the previous page of the same stream</li>
+     *    <li>GRANULE_REGRESSION: a page whose granule position is less than the previous one of the same stream</li>
+     * </ul>
+     */
+    public enum Type {
+        JUNK, CHECKSUM_MISMATCH, UNSUPPORTED_VERSION, TRUNCATED_PAGE, SEQUENCE_GAP, GRANULE_REGRESSION
+    }
+}
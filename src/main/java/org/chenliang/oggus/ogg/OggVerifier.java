@@ -0,0 +1,208 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Verify the integrity of Ogg files: page checksums, page sequence continuity and granule position monotonicity of
+ * every logical stream.
+ *
+ * <p>The file is memory-mapped and split into chunks that are scanned in parallel on a {@link ForkJoinPool}. Each
+ * chunk resyncs on the first valid page after its start, so corrupt regions don't stop the verification. The
+ * chunks are then merged in order, any byte range not covered by a valid page is reported with the reason found at
+ * its start.</p>
+ *
+ * <p>An {@code OggVerifier} is thread safe and could verify several files concurrently.</p>
+ */
+public class OggVerifier {
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Create a verifier running on the common pool with the default chunk size.
+     */
+    public OggVerifier() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool      the pool running the scan tasks
+     * @param chunkSize the maximum number of bytes scanned by a single task
+     */
+    public OggVerifier(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < OggPage.MAX_PAGE_SIZE || chunkSize > Integer.MAX_VALUE - OggPage.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Verify an Ogg file.
+     *
+     * @param file path of an Ogg file
+     * @return the report of the file
+     * @throws IOException if an I/O error occurs
+     */
+    public OggVerificationReport verify(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ScanResult result;
+            try {
+                result = pool.invoke(new ScanTask(channel, size, 0, size, chunkSize));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return merge(file, size, result);
+        }
+    }
+
+    private static OggVerificationReport merge(Path file, long size, ScanResult result) {
+        List<OggVerificationReport.Problem> problems = new ArrayList<>();
+        Map<Long, long[]> lastPages = new HashMap<>();
+        long pageCount = 0;
+        long expectedOffset = 0;
+        for (long[] page : result.pages) {
+            long offset = page[0];
+            if (offset < expectedOffset) {
+                // A valid page embedded in the payload of the previous page
+                continue;
+            }
+            if (offset > expectedOffset) {
+                problems.add(gap(result, expectedOffset, offset));
+            }
+            pageCount++;
+            expectedOffset = offset + page[1];
+
+            long serialNum = page[2];
+            long seqNum = page[3];
+            long granulePosition = page[4];
+            long[] last = lastPages.get(serialNum);
+            if (last == null) {
+                lastPages.put(serialNum, new long[]{seqNum, granulePosition});
+                continue;
+            }
+            if (seqNum != ((last[0] + 1) & 0xffffffffL)) {
+                problems.add(new OggVerificationReport.Problem(OggVerificationReport.Type.SEQUENCE_GAP,
+                        offset, page[1], serialNum));
+            }
+            last[0] = seqNum;
+            if (granulePosition != -1) {
+                if (last[1] != -1 && granulePosition < last[1]) {
+                    problems.add(new OggVerificationReport.Problem(OggVerificationReport.Type.GRANULE_REGRESSION,
+                            offset, page[1], serialNum));
+                }
+                last[1] = granulePosition;
+            }
+        }
+        if (expectedOffset < size) {
+            problems.add(gap(result, expectedOffset, size));
+        }
+        return new OggVerificationReport(file, size, pageCount, problems);
+    }
+
+    private static OggVerificationReport.Problem gap(ScanResult result, long from, long to) {
+        OggVerificationReport.Type type = result.failures.getOrDefault(from, OggVerificationReport.Type.JUNK);
+        return new OggVerificationReport.Problem(type, from, to - from, -1);
+    }
+
+    private static ScanResult scan(FileChannel channel, long size, long start, long end) throws IOException {
+        // Pages starting in [start, end) belong to this chunk, map enough bytes to hold the last one entirely
+        long mapEnd = Math.min(size, end + OggPage.MAX_PAGE_SIZE);
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, mapEnd - start)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int limit = (int) (end - start);
+        ScanResult result = new ScanResult();
+        int index = 0;
+        while (index < limit) {
+            int pageSize = OggPages.checkPage(buffer, index);
+            if (pageSize > 0) {
+                result.pages.add(new long[]{
+                        start + index,
+                        pageSize,
+                        Integer.toUnsignedLong(OggPages.getIntLE(buffer, index + OggPages.SERIAL_NUM_OFFSET)),
+                        Integer.toUnsignedLong(OggPages.getIntLE(buffer, index + OggPages.SEQ_NUM_OFFSET)),
+                        OggPages.getLongLE(buffer, index + OggPages.GRANULE_POSITION_OFFSET)
+                });
+                index += pageSize;
+                continue;
+            }
+            if (pageSize != OggPages.INVALID_CAPTURE_PATTERN) {
+                result.failures.put(start + index, toProblemType(pageSize));
+            }
+            index = OggSync.findCapturePattern(buffer, index + 1, limit);
+            if (index < 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static OggVerificationReport.Type toProblemType(int invalidCode) {
+        switch (invalidCode) {
+            case OggPages.INVALID_VERSION:
+                return OggVerificationReport.Type.UNSUPPORTED_VERSION;
+            case OggPages.INVALID_TRUNCATED:
+                return OggVerificationReport.Type.TRUNCATED_PAGE;
+            case OggPages.INVALID_CHECKSUM:
+                return OggVerificationReport.Type.CHECKSUM_MISMATCH;
+            default:
+                return OggVerificationReport.Type.JUNK;
+        }
+    }
+
+    private static class ScanResult {
+        // {offset, size, serialNum, seqNum, granulePosition} of each valid page, ordered by offset
+        private final List<long[]> pages = new ArrayList<>();
+        // Why the capture patterns at these offsets don't start a valid page
+        private final Map<Long, OggVerificationReport.Type> failures = new HashMap<>();
+    }
+
+    private static class ScanTask extends RecursiveTask<ScanResult> {
+        private static final long serialVersionUID = 1L;
+        private final transient FileChannel channel;
+        private final long size;
+        private final long start;
+        private final long end;
+        private final int chunkSize;
+
+        ScanTask(FileChannel channel, long size, long start, long end, int chunkSize) {
+            this.channel = channel;
+            this.size = size;
+            this.start = start;
+            this.end = end;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected ScanResult compute() {
+            if (end - start <= chunkSize) {
+                try {
+                    return scan(channel, size, start, end);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            long mid = start + (end - start) / 2;
+            ScanTask left = new ScanTask(channel, size, start, mid, chunkSize);
+            left.fork();
+            ScanResult right = new ScanTask(channel, size, mid, end, chunkSize).compute();
+            ScanResult result = left.join();
+            result.pages.addAll(right.pages);
+            result.failures.putAll(right.failures);
+            return result;
+        }
+    }
+}
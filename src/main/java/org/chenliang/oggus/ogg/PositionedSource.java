@@ -0,0 +1,61 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A seekable {@link OggSource} filling its window with reads at absolute positions, so that no state of the
+ * underlying file is changed. A seek within the window only moves the position, other seeks discard the window.
+ */
+abstract class PositionedSource extends OggSource {
+
+    PositionedSource(int capacity) {
+        this.buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.limit(0);
+    }
+
+    /**
+     * Read bytes of the source at an absolute position.
+     *
+     * @param dst      the buffer to read into, from its position
+     * @param position the offset in the source of the first byte to read
+     * @return the number of bytes read, or -1 if there isn't byte left at the position
+     * @throws IOException if an I/O error occurs
+     */
+    abstract int read(ByteBuffer dst, long position) throws IOException;
+
+    @Override
+    boolean fill(int n) throws IOException {
+        if (available() >= n) {
+            return true;
+        }
+        buffer.position(pos);
+        buffer.compact();
+        base += pos;
+        pos = 0;
+        while (buffer.position() < n && base + buffer.position() < size()) {
+            if (read(buffer, base + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.limit() >= n;
+    }
+
+    @Override
+    boolean isSeekable() {
+        return true;
+    }
+
+    @Override
+    void seek(long position) {
+        if (position >= base && position <= base + buffer.limit()) {
+            pos = (int) (position - base);
+            return;
+        }
+        buffer.clear().limit(0);
+        base = position;
+        pos = 0;
+    }
+}
@@ -0,0 +1,118 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An {@link InputStream} reading ahead of its consumer: a background thread keeps a bounded ring of blocks filled
+ * from the underlying stream, so the latency of the underlying reads is hidden while the consumer is busy.
+ *
+ * <p>The blocks are allocated once and recycled, the memory used is {@code depth * BLOCK_SIZE}. An error of the
+ * underlying stream is thrown to the consumer once it has read the bytes before it. Closing the stream stops the
+ * background thread and closes the underlying stream.</p>
+ */
+class ReadAheadInputStream extends InputStream {
+    static final int BLOCK_SIZE = 64 * 1024;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+    private final InputStream in;
+    private final BlockingQueue<ByteBuffer> freeBlocks;
+    private final BlockingQueue<ByteBuffer> filledBlocks;
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile IOException error;
+    private ByteBuffer current;
+
+    ReadAheadInputStream(InputStream in, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Invalid read-ahead depth: " + depth);
+        }
+        this.in = in;
+        this.freeBlocks = new ArrayBlockingQueue<>(depth);
+        // One more slot for the end marker
+        this.filledBlocks = new ArrayBlockingQueue<>(depth + 1);
+        for (int i = 0; i < depth; i++) {
+            freeBlocks.add(ByteBuffer.allocate(BLOCK_SIZE));
+        }
+        this.thread = new Thread(this::readAhead, "oggus-read-ahead");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void readAhead() {
+        try {
+            while (!closed) {
+                ByteBuffer block = freeBlocks.take();
+                int read = in.read(block.array(), 0, block.capacity());
+                if (read < 0) {
+                    break;
+                }
+                block.clear().limit(read);
+                filledBlocks.put(block);
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException(e);
+        }
+        if (!closed) {
+            filledBlocks.add(END);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : Byte.toUnsignedInt(b[0]);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (current == null || !current.hasRemaining()) {
+            if (current == END) {
+                if (error != null) {
+                    throw error;
+                }
+                return -1;
+            }
+            if (current != null) {
+                freeBlocks.add(current);
+            }
+            try {
+                current = filledBlocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for read-ahead");
+            }
+        }
+        int n = Math.min(len, current.remaining());
+        current.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null || current == END ? 0 : current.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        thread.interrupt();
+        in.close();
+    }
+}
@@ -0,0 +1,37 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A seekable {@link OggSource} reading a {@link FileChannel} shared with other sources. Only positioned reads are
+ * used, so the position of the channel is never changed and the sources could be used by different threads. The
+ * channel is owned by its sharer, closing the source doesn't close it.
+ */
+class SharedChannelSource extends PositionedSource {
+    static final int DEFAULT_CAPACITY = OggPage.MAX_PAGE_SIZE + 16 * 1024;
+    private final FileChannel channel;
+    private final long size;
+
+    SharedChannelSource(FileChannel channel, long size) {
+        super(DEFAULT_CAPACITY);
+        this.channel = channel;
+        this.size = size;
+    }
+
+    @Override
+    int read(ByteBuffer dst, long position) throws IOException {
+        return channel.read(dst, position);
+    }
+
+    @Override
+    long size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        // The channel is closed by its sharer
+    }
+}
@@ -0,0 +1,89 @@
+package org.chenliang.oggus.opus;
+
+import java.time.Duration;
+
+/**
+ * A link of a chained Ogg Opus file: a physical stream made of Ogg Opus streams one after the other, each with its
+ * own serial number and headers, e.g. a radio capture. See {@link OggOpusStream#getLinks()}.
+ *
+ * <p>The samples of the links are numbered across the whole chain at 48 kHz, the pre-skip of each link excluded.</p>
+ */
+public final class OggOpusLink {
+    private static final int GRANULE_RATE = 48000;
+    private final long startOffset;
+    private final long endOffset;
+    private final long audioDataOffset;
+    private final long serialNum;
+    private final IdHeader idHeader;
+    private final CommentHeader commentHeader;
+    private final long startSample;
+    private final long sampleCount;
+
+    OggOpusLink(long startOffset, long endOffset, long audioDataOffset, long serialNum, IdHeader idHeader,
+                CommentHeader commentHeader, long startSample, long lastGranulePosition) {
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.audioDataOffset = audioDataOffset;
+        this.serialNum = serialNum;
+        this.idHeader = idHeader;
+        this.commentHeader = commentHeader;
+        this.startSample = startSample;
+        this.sampleCount = Math.max(0, lastGranulePosition - idHeader.getPreSkip());
+    }
+
+    /**
+     * @return the offset of the first BOS page of the link
+     */
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    /**
+     * @return the offset right after the last page of the link
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * @return the offset right after the header pages of the Opus stream
+     */
+    public long getAudioDataOffset() {
+        return audioDataOffset;
+    }
+
+    public long getSerialNum() {
+        return serialNum;
+    }
+
+    public IdHeader getIdHeader() {
+        return idHeader;
+    }
+
+    public CommentHeader getCommentHeader() {
+        return commentHeader;
+    }
+
+    /**
+     * @return the index in the chain of the first sample of the link
+     */
+    public long getStartSample() {
+        return startSample;
+    }
+
+    /**
+     * @return the number of samples of the link, from the granule position of its last page minus the pre-skip
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public Duration getDuration() {
+        return toDuration(sampleCount);
+    }
+
+    static Duration toDuration(long sampleCount) {
+        return Duration.ofSeconds(sampleCount / GRANULE_RATE,
+                sampleCount % GRANULE_RATE * 1_000_000_000L / GRANULE_RATE);
+    }
+}
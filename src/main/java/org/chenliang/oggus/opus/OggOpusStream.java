@@ -1,14 +1,25 @@
 package org.chenliang.oggus.opus;
 
-import org.chenliang.oggus.util.Bytes;
+import org.chenliang.oggus.ogg.OggBlockCache;
+import org.chenliang.oggus.ogg.OggFileIndex;
 import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggPageHeader;
+import org.chenliang.oggus.ogg.OggPageView;
 import org.chenliang.oggus.ogg.OggStream;
 
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.LinkedList;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Queue;
+import java.util.Set;
 
 /**
  * A class that provide methods to read an Ogg opus stream. An Ogg Opus stream is organized as follows:
@@ -28,20 +39,43 @@ import java.util.Queue;
  * |      ID header is contained on a single page
  * 'Beginning Of Stream'
  * </pre>
+ *
+ * <p>A chained file is made of Ogg Opus streams one after the other, each with its own serial number and headers.
+ * They are read one after the other, the headers returned are the ones of the current link, see
+ * {@link OggOpusStream#getLinks()}.</p>
  */
-public class OggOpusStream {
-    private final CommentHeader commentHeader;
-    private final IdHeader idHeader;
+public class OggOpusStream implements Closeable {
+    private CommentHeader commentHeader;
+    private IdHeader idHeader;
     private final OggStream oggStream;
-    private final Queue<byte[]> lastPageLeftAudioDataPackets = new LinkedList<>();
-    private boolean isLastReadPageCompleted = true;
+    // The last page read, reused for all the pages, and the index of its next packet to read
+    private final OggPage page = OggPage.empty();
+    private int nextPacket;
+    // Packets continued over pages are assembled here, it grows but never shrinks
+    private byte[] packetBuffer = new byte[0];
     private long streamId;
     private boolean isEnd = false;
+    private long audioDataPosition;
+    // The link table of a chained file, built on demand
+    private List<OggOpusLink> links;
+    private final long firstStreamId;
+    private final IdHeader firstIdHeader;
+    // The serial numbers of the BOS pages starting the file, read on demand
+    private Set<Long> firstLinkSerialNums;
+    private int linkIndex;
 
     private OggOpusStream(OggStream oggStream) throws IOException {
         idHeader = readIdHeader(oggStream);
-        commentHeader = readCommentHeader(oggStream);
+        firstStreamId = streamId;
+        firstIdHeader = idHeader;
+        commentHeader = readCommentHeader(oggStream, streamId, page);
+        page.reset();
+        if (oggStream.isSeekable()) {
+            // The Skeleton index, if any, follows the header pages
+            oggStream.readSkeleton();
+        }
         this.oggStream = oggStream;
+        this.audioDataPosition = oggStream.getPosition();
     }
 
     /**
@@ -55,6 +89,19 @@ public class OggOpusStream {
         return new OggOpusStream(OggStream.from(inputStream));
     }
 
+    /**
+     * Read Ogg Opus stream from an InputStream read ahead by a background thread, see
+     * {@link OggStream#from(InputStream, int)}.
+     *
+     * @param inputStream    An InputStream that could read the Ogg Opus stream.
+     * @param readAheadDepth The number of 64 KB blocks read ahead
+     * @return The OggOpusStream object
+     * @throws IOException If IO read error
+     */
+    public static OggOpusStream from(InputStream inputStream, int readAheadDepth) throws IOException {
+        return new OggOpusStream(OggStream.from(inputStream, readAheadDepth));
+    }
+
     /**
      * Read Ogg Opus stream from file
      *
@@ -67,7 +114,53 @@ public class OggOpusStream {
     }
 
     /**
-     * Get the Id header of this Ogg Opus stream
+     * Read Ogg Opus stream from a channel, see {@link OggStream#from(ReadableByteChannel)}.
+     *
+     * @param channel A channel that could read the Ogg Opus stream.
+     * @return The OggOpusStream object
+     * @throws IOException If IO read error
+     */
+    public static OggOpusStream from(ReadableByteChannel channel) throws IOException {
+        return new OggOpusStream(OggStream.from(channel));
+    }
+
+    /**
+     * Read Ogg Opus stream from a file through a block cache, see {@link OggStream#from(Path, OggBlockCache)}.
+     *
+     * @param path  The file path
+     * @param cache The block cache, e.g. {@link OggBlockCache#shared()}
+     * @return The OggOpusStream object
+     * @throws IOException If IO read error
+     */
+    public static OggOpusStream from(Path path, OggBlockCache cache) throws IOException {
+        return new OggOpusStream(OggStream.from(path, cache));
+    }
+
+    /**
+     * Read Ogg Opus stream through a cursor over an indexed file, see {@link OggStream#from(OggFileIndex)}. The
+     * streams of the same index could be read concurrently.
+     *
+     * @param index The index of the file
+     * @return The OggOpusStream object
+     * @throws IOException If IO read error
+     */
+    public static OggOpusStream from(OggFileIndex index) throws IOException {
+        return new OggOpusStream(OggStream.from(index));
+    }
+
+    /**
+     * Read Ogg Opus stream from a memory-mapped file, see {@link OggStream#map(Path)}.
+     *
+     * @param path The file path
+     * @return The OggOpusStream object
+     * @throws IOException If IO read error
+     */
+    public static OggOpusStream map(Path path) throws IOException {
+        return new OggOpusStream(OggStream.map(path));
+    }
+
+    /**
+     * Get the Id header of this Ogg Opus stream, of the current link for a chained file
      *
      * @return IdHeader
      */
@@ -76,7 +169,7 @@ public class OggOpusStream {
     }
 
     /**
-     * Get the Comment header of this Ogg Opus stream
+     * Get the Comment header of this Ogg Opus stream, of the current link for a chained file
      *
      * @return CommentHeader
      */
@@ -84,92 +177,419 @@ public class OggOpusStream {
         return this.commentHeader;
     }
 
+    /**
+     * Record keypoints of the pages read, so that seeking back to audio already read doesn't search it, see
+     * {@link OggStream#setKeypointRecording(int)}. Nothing is recorded when the file has a seek index, from a
+     * Skeleton index or an {@link OggFileIndex}, as seeking uses it instead.
+     *
+     * @param maxKeypoints the maximum number of keypoints of each logical stream, e.g.
+     *                     {@link OggStream#DEFAULT_MAX_KEYPOINTS}, or 0 to stop recording and drop the keypoints
+     */
+    public void setKeypointRecording(int maxKeypoints) {
+        if (oggStream.getSeekIndex() == null) {
+            oggStream.setKeypointRecording(maxKeypoints);
+        }
+    }
+
+    /**
+     * @return the index of the current link in a chained file, 0 for the first one
+     */
+    public int getLinkIndex() {
+        return linkIndex;
+    }
+
+    /**
+     * Get the links of a chained file, a single one if it isn't chained. The link table is built on the first call
+     * by a pre-scan of the page headers, only the header pages of the links are read. The position of the stream is
+     * left unchanged.
+     *
+     * @return the Opus links, in order
+     * @throws IOException if IO read error
+     * @throws UnsupportedOperationException if the stream isn't seekable
+     */
+    public List<OggOpusLink> getLinks() throws IOException {
+        if (links == null) {
+            links = Collections.unmodifiableList(scanLinks());
+        }
+        return links;
+    }
+
+    /**
+     * Get the duration of this Ogg Opus stream, the sum of the durations of its links, see {@link #getLinks()}. The
+     * duration of a link is the granule position of its last page minus the pre-skip.
+     *
+     * <p>The tail of the file is read first, see {@link OggStream#findLastPage()}. If its last page belongs to a
+     * logical stream of the first link, e.g. the first Opus stream or a stream multiplexed with it, the file has a
+     * single link and its duration is read from the last page of the Opus stream. Otherwise the link table is built,
+     * unless it already is.</p>
+     *
+     * <p>The stream must be seekable, e.g. created from a file path, a file channel or a memory-mapped file.</p>
+     *
+     * @return the duration, or {@link Duration#ZERO} if there isn't any audio data page
+     * @throws IOException if IO read error
+     * @throws UnsupportedOperationException if the stream isn't seekable
+     */
+    public Duration getDuration() throws IOException {
+        if (links == null) {
+            OggPageHeader lastPage = oggStream.findLastPage();
+            if (lastPage == null) {
+                return Duration.ZERO;
+            }
+            if (lastPage.getSerialNum() != firstStreamId && isInFirstLink(lastPage.getSerialNum())) {
+                lastPage = oggStream.findLastPage(firstStreamId);
+            }
+            if (lastPage != null && lastPage.getSerialNum() == firstStreamId) {
+                return OggOpusLink.toDuration(Math.max(0, lastPage.getGranulePosition() - firstIdHeader.getPreSkip()));
+            }
+        }
+        long sampleCount = 0;
+        for (OggOpusLink link : getLinks()) {
+            sampleCount += link.getSampleCount();
+        }
+        return OggOpusLink.toDuration(sampleCount);
+    }
+
     /**
      * Read an AudioDataPacket from the Ogg Opus stream. Return {@code null} if this is not more data to read.
      *
-     * <p>If there multiple logical streams, the first Opus stream is read.</p>
+     * <p>If there multiple logical streams, the first Opus stream is read. The links of a chained file are read one
+     * after the other.</p>
      *
      * @return AudioDataPacket
      * @throws IOException if IO read error
      */
     public AudioDataPacket readAudioPacket() throws IOException {
-        if (lastPageLeftAudioDataPackets.isEmpty()) {
-            if (isEnd) {
-                return null;
-            }
+        byte[] data = readAudioData();
+        return data == null ? null : AudioDataPacket.from(data, idHeader.getStreamCount());
+    }
 
-            byte[] data = new byte[0];
-            while (true) {
-                OggPage oggPage = oggStream.readPage(streamId);
-                if (oggPage == null) {
-                    throw new InvalidOpusException("Corrupted opus binary data");
+    /**
+     * Assemble the next packet of the Opus stream. A packet continued over pages is appended to the packet buffer
+     * page by page, so the copying is linear in its length.
+     *
+     * @return the packet data, or {@code null} if the EOS page has been read
+     */
+    private byte[] readAudioData() throws IOException {
+        int length = 0;
+        boolean started = false;
+        while (true) {
+            if (nextPacket < page.getPacketCount()) {
+                int packet = nextPacket++;
+                boolean isPartial = packet == page.getPacketCount() - 1 && !page.isCompleted();
+                if (!started && (!isPartial || isEnd)) {
+                    // The packet is in a single page
+                    int offset = page.getPacketOffset(packet);
+                    return Arrays.copyOfRange(page.getPayload(), offset, offset + page.getPacketLength(packet));
                 }
-                isEnd = oggPage.isEOS();
-                isLastReadPageCompleted = oggPage.isCompleted();
-                lastPageLeftAudioDataPackets.addAll(oggPage.getDataPackets());
-                data = Bytes.concat(data, lastPageLeftAudioDataPackets.poll());
-                if (isEnd || oggPage.getDataPackets().size() != 1 || oggPage.isCompleted()) {
-                    break;
+                length = appendPacket(length, page, packet);
+                if (!isPartial || isEnd) {
+                    return Arrays.copyOf(packetBuffer, length);
                 }
+                started = true;
+                continue;
             }
-            return AudioDataPacket.from(data, idHeader.getStreamCount());
+            if (isEnd) {
+                if (!readNextLink()) {
+                    return null;
+                }
+                continue;
+            }
+            if (oggStream.readPage(streamId, page) == null) {
+                throw new InvalidOpusException("Corrupted opus binary data");
+            }
+            isEnd = page.isEOS();
+            // Without its beginning, e.g. after a seek, the end of a packet is dropped
+            nextPacket = page.isContinued() && !started ? 1 : 0;
         }
+    }
 
-        byte[] data = lastPageLeftAudioDataPackets.poll();
+    /**
+     * Append a packet of the current page to the packet buffer.
+     *
+     * @return the new length of the data in the packet buffer
+     */
+    private int appendPacket(int length, OggPage page, int packet) {
+        int packetLength = page.getPacketLength(packet);
+        if (packetBuffer.length < length + packetLength) {
+            packetBuffer = Arrays.copyOf(packetBuffer, Math.max(length + packetLength, packetBuffer.length * 2));
+        }
+        System.arraycopy(page.getPayload(), page.getPacketOffset(packet), packetBuffer, length, packetLength);
+        return length + packetLength;
+    }
 
-        if (isLastReadPageCompleted || !lastPageLeftAudioDataPackets.isEmpty()) {
-            return AudioDataPacket.from(data, idHeader.getStreamCount());
+    /**
+     * Move to the audio data at a granule position of the current link, see
+     * {@link OggStream#seekToGranule(long, long)}. The first packet
+     * read afterwards starts at or before the granule position, decoding should start {@link IdHeader#getPreSkip()}
+     * samples earlier to converge. Seeking back to data already read uses the keypoints recorded while reading it, if
+     * {@link #setKeypointRecording(int)} is enabled.
+     *
+     * @param granulePosition the granule position, in 48 kHz samples including the pre-skip
+     * @return a granule position at or before the start of the next packet read
+     * @throws IOException if IO read error
+     * @throws UnsupportedOperationException if the stream isn't seekable
+     */
+    public long seekToGranule(long granulePosition) throws IOException {
+        long pageGranulePosition = seekInLink(granulePosition);
+        if (pageGranulePosition > 0 && isNextPageContinued()) {
+            // The packet at the granule position starts in the previous page
+            pageGranulePosition = seekInLink(pageGranulePosition);
         }
+        if (oggStream.getPosition() < audioDataPosition) {
+            oggStream.seek(audioDataPosition);
+            pageGranulePosition = 0;
+        }
+        page.reset();
+        nextPacket = 0;
+        isEnd = false;
+        return pageGranulePosition;
+    }
 
-        while (true) {
-            OggPage oggPage = oggStream.readPage(streamId);
-            if (oggPage == null) {
-                throw new InvalidOpusException("Corrupted opus binary data");
+    /**
+     * Move to the audio data at a sample of a chained file, numbered across its links, see {@link #getLinks()}. The
+     * link containing the sample becomes the current one, and the stream is moved as
+     * {@link #seekToGranule(long)} does in it.
+     *
+     * @param sample the index of the sample in the chain, at 48 kHz
+     * @return the index of a sample at or before the start of the next packet read
+     * @throws IOException if IO read error
+     * @throws UnsupportedOperationException if the stream isn't seekable
+     */
+    public long seekToSample(long sample) throws IOException {
+        List<OggOpusLink> links = getLinks();
+        int low = 0;
+        int high = links.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (links.get(mid).getStartSample() <= sample) {
+                low = mid;
+            } else {
+                high = mid - 1;
             }
-            isEnd = oggPage.isEOS();
-            isLastReadPageCompleted = oggPage.isCompleted();
-            lastPageLeftAudioDataPackets.addAll(oggPage.getDataPackets());
-            data = Bytes.concat(data, lastPageLeftAudioDataPackets.poll());
-            if (isEnd || oggPage.getDataPackets().size() != 1 || oggPage.isCompleted()) {
-                break;
+        }
+        OggOpusLink link = links.get(low);
+        linkIndex = low;
+        streamId = link.getSerialNum();
+        idHeader = link.getIdHeader();
+        commentHeader = link.getCommentHeader();
+        audioDataPosition = link.getAudioDataOffset();
+        long granulePosition = seekToGranule(Math.max(0, sample - link.getStartSample()) + idHeader.getPreSkip());
+        return link.getStartSample() + Math.max(0, granulePosition - idHeader.getPreSkip());
+    }
+
+    /**
+     * Seek in the byte range of the current link once the link table is built, otherwise in the whole file.
+     */
+    private long seekInLink(long granulePosition) throws IOException {
+        if (links != null && linkIndex < links.size() && links.get(linkIndex).getSerialNum() == streamId) {
+            OggOpusLink link = links.get(linkIndex);
+            return oggStream.seekToGranule(streamId, granulePosition, link.getStartOffset(), link.getEndOffset());
+        }
+        return oggStream.seekToGranule(streamId, granulePosition);
+    }
+
+    /**
+     * Close the underlying stream or file.
+     *
+     * @throws IOException If IO error
+     */
+    @Override
+    public void close() throws IOException {
+        oggStream.close();
+    }
+
+    /**
+     * @return whether the logical stream starts in the group of BOS pages at the beginning of the file
+     */
+    private boolean isInFirstLink(long serialNum) throws IOException {
+        if (firstLinkSerialNums == null) {
+            Set<Long> serialNums = new HashSet<>();
+            long position = oggStream.getPosition();
+            try {
+                oggStream.seek(0);
+                OggPageHeader header;
+                while ((header = skimPage()) != null && header.isBOS()) {
+                    serialNums.add(header.getSerialNum());
+                }
+            } finally {
+                oggStream.seek(position);
             }
+            firstLinkSerialNums = serialNums;
         }
-        return AudioDataPacket.from(data, idHeader.getStreamCount());
+        return firstLinkSerialNums.contains(serialNum);
+    }
+
+    private boolean isNextPageContinued() throws IOException {
+        long position = oggStream.getPosition();
+        OggPageHeader header;
+        do {
+            header = oggStream.skimPage();
+        } while (header != null && header.getSerialNum() != streamId);
+        oggStream.seek(position);
+        return header != null && header.isContinued();
     }
 
     private IdHeader readIdHeader(OggStream oggStream) throws IOException {
-        OggPage oggPage = readOpusBosPage(oggStream);
+        OggPage oggPage = readOpusBosPage(oggStream, false);
+        if (oggPage == null) {
+            throw new InvalidOpusException("No ID Header data in this opus file");
+        }
         streamId = oggPage.getSerialNum();
         return IdHeader.from(oggPage.getDataPackets().get(0));
     }
 
-    private OggPage readOpusBosPage(OggStream oggStream) throws IOException {
-        while (true) {
-            OggPage oggPage = oggStream.readPage();
-            if (oggPage == null) {
-                throw new InvalidOpusException("No ID Header data in this opus file");
-            }
+    /**
+     * Read the headers of the next link of a chained file, after the EOS page of the current one.
+     *
+     * @return false if there isn't any link left
+     */
+    private boolean readNextLink() throws IOException {
+        OggPage oggPage = readOpusBosPage(oggStream, true);
+        if (oggPage == null) {
+            return false;
+        }
+        streamId = oggPage.getSerialNum();
+        idHeader = IdHeader.from(oggPage.getDataPackets().get(0));
+        commentHeader = readCommentHeader(oggStream, streamId, page);
+        page.reset();
+        nextPacket = 0;
+        isEnd = false;
+        audioDataPosition = oggStream.getPosition();
+        linkIndex++;
+        return true;
+    }
 
-            if (oggPage.isBOS()) {
-                if (oggPage.getDataPackets().size() > 1) {
+    /**
+     * Read the BOS pages of a link up to the ID header page. The BOS pages of a link come before its other pages, so
+     * the search stops at the first page which isn't a BOS page.
+     *
+     * @param afterLink true to skip the pages left of the previous link, e.g. the pages of other logical streams
+     *                  after the EOS page of the Opus stream, they are skimmed without being copied
+     * @return the next ID header page, or {@code null} if there isn't any
+     */
+    private OggPage readOpusBosPage(OggStream oggStream, boolean afterLink) throws IOException {
+        OggPage oggPage;
+        if (afterLink) {
+            OggPageView view = oggStream.readPageView(OggPageHeader::isBOS);
+            oggPage = view == null ? null : view.toOggPage();
+        } else {
+            oggPage = oggStream.readPage();
+        }
+        while (oggPage != null && oggPage.isBOS()) {
+            // Skip the BOS pages of other logical streams, e.g. an Ogg Skeleton stream
+            if (isIdHeaderPage(oggPage)) {
+                if (oggPage.getPacketCount() > 1) {
                     throw new InvalidOpusException("The ID Header Ogg page must NOT contain other data");
                 }
                 return oggPage;
             }
+            oggPage = oggStream.readPage();
         }
+        return null;
     }
 
-    private CommentHeader readCommentHeader(OggStream oggStream) throws IOException {
-        byte[] commentHeaderData = new byte[0];
+    private static boolean isIdHeaderPage(OggPage oggPage) {
+        if (oggPage.getPacketCount() == 0 || oggPage.getPacketLength(0) < IdHeader.MAGIC_SIGNATURE.length) {
+            return false;
+        }
+        byte[] payload = oggPage.getPayload();
+        for (int i = 0; i < IdHeader.MAGIC_SIGNATURE.length; i++) {
+            if (payload[i] != IdHeader.MAGIC_SIGNATURE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CommentHeader readCommentHeader(OggStream oggStream, long serialNum, OggPage page) throws IOException {
+        int length = 0;
         while (true) {
-            OggPage currentPage = oggStream.readPage(streamId);
-            List<byte[]> currentPagePackets = currentPage.getDataPackets();
-            if (currentPagePackets.size() != 1) {
+            if (oggStream.readPage(serialNum, page) == null) {
+                throw new InvalidOpusException("No Comment Header data in this opus file");
+            }
+            if (page.getPacketCount() != 1) {
                 throw new InvalidOpusException("Comment Header Ogg pages must only contain 1 data packet");
             }
-            commentHeaderData = Bytes.concat(commentHeaderData, currentPagePackets.get(0));
-            if (currentPage.getGranulePosition() == 0) break;
+            length = appendPacket(length, page, 0);
+            if (page.getGranulePosition() == 0) break;
+        }
+        return CommentHeader.from(Arrays.copyOf(packetBuffer, length));
+    }
+
+    /**
+     * @return the header of the next page, or {@code null} if there isn't page left or the last page is truncated
+     */
+    private OggPageHeader skimPage() throws IOException {
+        try {
+            return oggStream.skimPage();
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Build the link table with a pre-scan of the page headers. A link starts with a group of BOS pages, only the
+     * ID header and Comment header pages of its Opus stream are read, the pages of other logical streams are ignored.
+     */
+    private List<OggOpusLink> scanLinks() throws IOException {
+        List<OggOpusLink> links = new ArrayList<>();
+        OggPage scanPage = OggPage.empty();
+        long position = oggStream.getPosition();
+        try {
+            oggStream.seek(0);
+            boolean inBosPages = false;
+            long startOffset = 0;
+            long endOffset = 0;
+            long audioDataOffset = 0;
+            long serialNum = -1;
+            IdHeader linkIdHeader = null;
+            CommentHeader linkCommentHeader = null;
+            long lastGranulePosition = 0;
+            long startSample = 0;
+            OggPageHeader header;
+            while ((header = skimPage()) != null) {
+                if (header.isBOS() && !inBosPages) {
+                    if (linkCommentHeader != null) {
+                        OggOpusLink link = new OggOpusLink(startOffset, endOffset, audioDataOffset, serialNum,
+                                linkIdHeader, linkCommentHeader, startSample, lastGranulePosition);
+                        links.add(link);
+                        startSample += link.getSampleCount();
+                    }
+                    startOffset = header.getOffset();
+                    serialNum = -1;
+                    linkIdHeader = null;
+                    linkCommentHeader = null;
+                    lastGranulePosition = 0;
+                }
+                inBosPages = header.isBOS();
+                endOffset = header.getOffset() + header.getPageSize();
+                if (header.isBOS()) {
+                    if (linkIdHeader == null) {
+                        oggStream.seek(header.getOffset());
+                        OggPage oggPage = oggStream.readPage();
+                        if (isIdHeaderPage(oggPage)) {
+                            serialNum = oggPage.getSerialNum();
+                            linkIdHeader = IdHeader.from(oggPage.getDataPackets().get(0));
+                        }
+                    }
+                } else if (header.getSerialNum() == serialNum) {
+                    if (linkCommentHeader == null) {
+                        oggStream.seek(header.getOffset());
+                        linkCommentHeader = readCommentHeader(oggStream, serialNum, scanPage);
+                        audioDataOffset = oggStream.getPosition();
+                        endOffset = audioDataOffset;
+                    } else if (header.getGranulePosition() != -1) {
+                        lastGranulePosition = header.getGranulePosition();
+                    }
+                }
+            }
+            if (linkCommentHeader != null) {
+                links.add(new OggOpusLink(startOffset, endOffset, audioDataOffset, serialNum, linkIdHeader,
+                        linkCommentHeader, startSample, lastGranulePosition));
+            }
+        } finally {
+            oggStream.seek(position);
         }
-        return CommentHeader.from(commentHeaderData);
+        return links;
     }
 }
@@ -0,0 +1,58 @@
+package org.chenliang.oggus.util;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * A streaming accumulator of the Ogg CRC-32, see {@link CRCUtil}. Data could be fed in any number of pieces, the
+ * result is the same as computing the CRC of the concatenated data in one call.
+ *
+ * <p>This class is not thread safe.</p>
+ */
+public class OggCrc implements Checksum {
+    private int crc;
+
+    @Override
+    public void update(int b) {
+        crc = CRCUtil.update(crc, b);
+    }
+
+    public void update(byte[] b) {
+        crc = CRCUtil.update(crc, b, 0, b.length);
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        crc = CRCUtil.update(crc, b, off, len);
+    }
+
+    /**
+     * Update the checksum with the remaining bytes of a buffer. On return the position of the buffer is equal to
+     * its limit.
+     *
+     * @param buffer the data
+     */
+    public void update(ByteBuffer buffer) {
+        crc = CRCUtil.update(crc, buffer);
+    }
+
+    /**
+     * @return the current CRC value as stored in the {@code CRC_checksum} field of an Ogg page
+     */
+    public int getCrc() {
+        return crc;
+    }
+
+    /**
+     * @return the current CRC value as an unsigned 32-bit number
+     */
+    @Override
+    public long getValue() {
+        return Integer.toUnsignedLong(crc);
+    }
+
+    @Override
+    public void reset() {
+        crc = 0;
+    }
+}
@@ -0,0 +1,115 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.ogg.AsyncOggReader;
+import org.chenliang.oggus.ogg.CheckSumPolicy;
+import org.chenliang.oggus.ogg.InvalidOggException;
+import org.chenliang.oggus.ogg.OggPage;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncOggReaderTest {
+    @Test
+    void should_read_pages_across_blocks() throws Exception {
+        List<byte[]> pages = createPages(100);
+        List<byte[]> data = new ArrayList<>(pages);
+        data.add(0, "junk".getBytes());
+        Path file = TestUtil.createFile(data);
+
+        try (AsyncOggReader reader = AsyncOggReader.from(file)) {
+            OggPage reuse = OggPage.empty();
+            for (byte[] page : pages) {
+                assertSame(reuse, reader.readPage(reuse).get());
+                assertArrayEquals(page, reuse.dump());
+            }
+            assertNull(reader.readPage().get());
+            assertEquals(Files.size(file), reader.getPosition());
+        }
+    }
+
+    @Test
+    void should_call_handler_for_each_page_on_shared_thread_pool() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<byte[]> pages1 = createPages(50);
+            List<byte[]> pages2 = createPages(80);
+            List<byte[]> read1 = new ArrayList<>();
+            List<byte[]> read2 = new ArrayList<>();
+            try (AsyncOggReader reader1 = AsyncOggReader.from(TestUtil.createFile(pages1), executor);
+                 AsyncOggReader reader2 = AsyncOggReader.from(TestUtil.createFile(pages2), executor)) {
+                CompletableFuture<Long> future1 = reader1.forEachPage(page -> read1.add(page.toOggPage().dump()));
+                CompletableFuture<Long> future2 = reader2.forEachPage(page -> read2.add(page.toOggPage().dump()));
+
+                assertEquals(50, (long) future1.get());
+                assertEquals(80, (long) future2.get());
+            }
+            assertEquals(pages1.size(), read1.size());
+            for (int i = 0; i < pages1.size(); i++) {
+                assertArrayEquals(pages1.get(i), read1.get(i));
+            }
+            assertEquals(pages2.size(), read2.size());
+            for (int i = 0; i < pages2.size(); i++) {
+                assertArrayEquals(pages2.get(i), read2.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void should_complete_exceptionally_when_checksum_mismatch_with_strict_policy() throws Exception {
+        List<byte[]> pages = createPages(3);
+        byte[] corrupted = pages.get(1);
+        corrupted[corrupted.length - 1] ^= 1;
+
+        try (AsyncOggReader reader = AsyncOggReader.from(TestUtil.createFile(pages))) {
+            reader.setCheckSumPolicy(CheckSumPolicy.STRICT);
+            assertArrayEquals(pages.get(0), reader.readPage().get().dump());
+            ExecutionException e = assertThrows(ExecutionException.class, () -> reader.readPage().get());
+            assertTrue(e.getCause() instanceof InvalidOggException);
+            assertArrayEquals(pages.get(2), reader.readPage().get().dump());
+            assertEquals(1, reader.getFailedPageCount());
+        }
+    }
+
+    @Test
+    void should_complete_exceptionally_when_last_page_is_truncated() throws Exception {
+        List<byte[]> pages = createPages(3);
+        byte[] last = pages.get(2);
+        pages.set(2, Arrays.copyOf(last, last.length - 1));
+        Path file = TestUtil.createFile(pages);
+
+        try (AsyncOggReader reader = AsyncOggReader.from(file)) {
+            assertArrayEquals(pages.get(0), reader.readPage().get().dump());
+            assertArrayEquals(pages.get(1), reader.readPage().get().dump());
+            ExecutionException e = assertThrows(ExecutionException.class, () -> reader.readPage().get());
+            assertTrue(e.getCause() instanceof EOFException);
+        }
+        try (AsyncOggReader reader = AsyncOggReader.from(file)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> reader.forEachPage(page -> {
+            }).get());
+            assertTrue(e.getCause() instanceof EOFException);
+        }
+    }
+
+    private static List<byte[]> createPages(int count) {
+        return TestUtil.createPages(count,
+                i -> TestUtil.createOggPage(0, i, 0, TestUtil.createBinary(i * 500 % 60000, (byte) i)));
+    }
+}
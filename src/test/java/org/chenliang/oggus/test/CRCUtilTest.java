@@ -0,0 +1,89 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.util.Bytes;
+import org.chenliang.oggus.util.CRCUtil;
+import org.chenliang.oggus.util.OggCrc;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CRCUtilTest {
+    @Test
+    void should_calculate_ogg_crc_of_known_data() {
+        assertEquals(0, CRCUtil.getCRC(new byte[0]));
+        assertEquals(0x89a1897f, CRCUtil.getCRC("123456789".getBytes()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 8, 9, 15, 16, 255, 1000, 65307})
+    void should_calculate_same_crc_as_bytewise_algorithm(int len) {
+        byte[] data = randomBinary(len + 3);
+        int expected = bytewiseCRC(data, 3, len);
+
+        assertEquals(expected, CRCUtil.update(0, data, 3, len));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 5, 8, 13, 1000})
+    void should_calculate_crc_of_heap_and_direct_byte_buffer(int len) {
+        byte[] data = randomBinary(len);
+        int expected = bytewiseCRC(data, 0, len);
+
+        ByteBuffer heap = ByteBuffer.wrap(data);
+        assertEquals(expected, CRCUtil.update(0, heap));
+        assertEquals(len, heap.position());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(len);
+        direct.put(data).flip();
+        assertEquals(expected, CRCUtil.update(0, direct));
+
+        direct.order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(expected, CRCUtil.update(0, direct, 0, len));
+    }
+
+    @Test
+    void should_accumulate_crc_incrementally() {
+        byte[] data = randomBinary(777);
+        OggCrc oggCrc = new OggCrc();
+        oggCrc.update(data, 0, 100);
+        oggCrc.update(data[100]);
+        oggCrc.update(ByteBuffer.wrap(data, 101, 676));
+
+        assertEquals(CRCUtil.getCRC(data), oggCrc.getCrc());
+        assertEquals(Integer.toUnsignedLong(CRCUtil.getCRC(data)), oggCrc.getValue());
+
+        oggCrc.reset();
+        assertEquals(0, oggCrc.getCrc());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 8, 100, 65307})
+    void should_extend_crc_with_zero_bytes(int len) {
+        byte[] data = Bytes.concat(randomBinary(20), new byte[len]);
+
+        assertEquals(CRCUtil.getCRC(data), CRCUtil.zeroExtend(CRCUtil.update(0, data, 0, 20), len));
+    }
+
+    private static byte[] randomBinary(int len) {
+        byte[] data = new byte[len];
+        new Random(len).nextBytes(data);
+        return data;
+    }
+
+    private static int bytewiseCRC(byte[] data, int off, int len) {
+        int crc = 0;
+        for (int i = off; i < off + len; i++) {
+            crc ^= (data[i] & 0xff) << 24;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ 0x04c11db7 : crc << 1;
+            }
+        }
+        return crc;
+    }
+}
@@ -0,0 +1,99 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.ogg.OggBlockCache;
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggBlockCacheTest {
+    @Test
+    void should_serve_seeks_of_other_streams_from_cache() throws IOException {
+        Path file = createFile(500, (byte) 1);
+        OggBlockCache cache = OggBlockCache.of(16 * 1024 * 1024);
+
+        try (OggStream mapped = OggStream.map(file); OggStream cached = OggStream.from(file, cache)) {
+            for (long target = 0; target < 49000; target += 777) {
+                assertEquals(mapped.seekToGranule(1, target), cached.seekToGranule(1, target));
+                assertEquals(mapped.getPosition(), cached.getPosition());
+                assertArrayEquals(mapped.readPage().dump(), cached.readPage().dump());
+            }
+        }
+        long missCount = cache.getMissCount();
+        assertTrue(missCount > 0);
+        assertTrue(cache.getSize() <= Files.size(file));
+
+        try (OggStream cached = OggStream.from(file, cache)) {
+            for (long target = 0; target < 49000; target += 777) {
+                cached.seekToGranule(1, target);
+                cached.readPage();
+            }
+        }
+        assertEquals(missCount, cache.getMissCount());
+        assertTrue(cache.getHitCount() > 0);
+    }
+
+    @Test
+    void should_read_all_pages_within_small_capacity() throws IOException {
+        Path file = createFile(300, (byte) 1);
+        OggBlockCache cache = OggBlockCache.of(4 * OggBlockCache.BLOCK_SIZE);
+
+        int count = 0;
+        try (OggStream cached = OggStream.from(file, cache); OggStream mapped = OggStream.map(file)) {
+            OggPage oggPage;
+            while ((oggPage = cached.readPage()) != null) {
+                assertArrayEquals(mapped.readPage().dump(), oggPage.dump());
+                count++;
+            }
+            assertNull(mapped.readPage());
+        }
+        assertEquals(300, count);
+        assertTrue(cache.getSize() <= cache.getCapacity());
+        assertTrue(cache.getEvictionCount() > 0);
+
+        // The capacity is less than a block per segment, the last blocks read are still cached
+        long hitCount = cache.getHitCount();
+        try (OggStream cached = OggStream.from(file, cache)) {
+            cached.seek(Files.size(file) - 2 * OggBlockCache.BLOCK_SIZE);
+            assertNotNull(cached.readPage());
+        }
+        assertTrue(cache.getHitCount() > hitCount);
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void should_not_use_blocks_of_modified_file() throws IOException {
+        Path file = createFile(10, (byte) 1);
+        OggBlockCache cache = OggBlockCache.of(1024 * 1024);
+        try (OggStream cached = OggStream.from(file, cache)) {
+            assertEquals(1, cached.readPage().getDataPackets().get(0)[0]);
+        }
+
+        Path modified = createFile(10, (byte) 2);
+        Files.copy(modified, file, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        try (OggStream cached = OggStream.from(file, cache)) {
+            assertEquals(2, cached.readPage().getDataPackets().get(0)[0]);
+        }
+    }
+
+    private static Path createFile(int pageCount, byte value) throws IOException {
+        Random random = new Random(7);
+        return TestUtil.createFile(TestUtil.createPages(pageCount,
+                i -> TestUtil.createOggPage(1, i, i * 100L, TestUtil.createBinary(1 + random.nextInt(3000), value))));
+    }
+}
@@ -0,0 +1,86 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.ogg.OggDemuxer;
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class OggDemuxerTest {
+    @Test
+    void should_dispatch_pages_of_discovered_streams_in_one_pass() throws IOException {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(createMultiplexedPages()));
+        OggDemuxer demuxer = new OggDemuxer(oggStream);
+        Map<Long, List<OggPage>> pages = new HashMap<>();
+        demuxer.setStreamListener((bosPage, d) -> {
+            if (bosPage.getSerialNum() != 2) {
+                List<OggPage> streamPages = new ArrayList<>();
+                pages.put(bosPage.getSerialNum(), streamPages);
+                d.addHandler(bosPage.getSerialNum(), page -> streamPages.add(page.toOggPage()));
+            }
+        });
+
+        demuxer.demux();
+
+        assertEquals(2, pages.size());
+        assertEquals(20, demuxer.getDispatchedPageCount());
+        for (long serialNum : new long[]{1, 3}) {
+            List<OggPage> streamPages = pages.get(serialNum);
+            assertEquals(10, streamPages.size());
+            for (int i = 0; i < 10; i++) {
+                OggPage oggPage = streamPages.get(i);
+                assertEquals(serialNum, oggPage.getSerialNum());
+                assertEquals(i, oggPage.getSeqNum());
+                assertArrayEquals(TestUtil.createBinary(100 * i, (byte) serialNum), oggPage.getDataPackets().get(0));
+            }
+        }
+    }
+
+    @Test
+    void should_skip_pages_after_handler_removed() throws IOException {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(createMultiplexedPages()));
+        OggDemuxer demuxer = new OggDemuxer(oggStream);
+        List<Long> seqNums = new ArrayList<>();
+        demuxer.addHandler(2, page -> {
+            seqNums.add(page.getSeqNum());
+            if (page.getSeqNum() == 4) {
+                demuxer.removeHandler(2);
+            }
+        });
+
+        demuxer.demux();
+
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), seqNums);
+        assertFalse(demuxer.demuxPage());
+    }
+
+    private static byte[] createMultiplexedPages() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 10; i++) {
+            for (int serialNum = 1; serialNum <= 3; serialNum++) {
+                OggPage oggPage = OggPage.empty();
+                oggPage.setSerialNum(serialNum);
+                oggPage.setSeqNum(i);
+                if (i == 0) {
+                    oggPage.setBOS();
+                }
+                oggPage.addDataPacket(TestUtil.createBinary(100 * i, (byte) serialNum));
+                byte[] pageData = oggPage.dump();
+                out.write(pageData, 0, pageData.length);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,114 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.ogg.OggFileIndex;
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OggFileIndexTest {
+    @Test
+    void should_index_pages_of_file() throws IOException {
+        List<byte[]> pages = createPages(100);
+        Path file = TestUtil.createFile(pages);
+
+        try (OggFileIndex index = OggFileIndex.open(file)) {
+            assertEquals(100, index.getPageCount());
+            assertEquals(Files.size(file), index.getSize());
+            long offset = 0;
+            for (int i = 0; i < pages.size(); i++) {
+                assertEquals(offset, index.getOffset(i));
+                assertEquals(pages.get(i).length, index.getPageSize(i));
+                assertEquals(i % 5 == 0 ? 2 : 1, index.getSerialNum(i));
+                assertEquals(i * 100L, index.getGranulePosition(i));
+                offset += pages.get(i).length;
+            }
+            assertEquals(80, index.getSeekIndex().getKeypointCount(1));
+            assertEquals(20, index.getSeekIndex().getKeypointCount(2));
+        }
+    }
+
+    @Test
+    void should_index_complete_pages_of_file_with_truncated_last_page() throws IOException {
+        List<byte[]> pages = createPages(6);
+        byte[] lastPage = pages.get(5);
+        pages.set(5, Arrays.copyOf(lastPage, lastPage.length - 10));
+        Path file = TestUtil.createFile(pages);
+
+        try (OggFileIndex index = OggFileIndex.open(file)) {
+            assertEquals(5, index.getPageCount());
+            assertEquals(Files.size(file), index.getSize());
+            try (OggStream cursor = OggStream.from(index)) {
+                for (int i = 0; i < 5; i++) {
+                    assertArrayEquals(pages.get(i), cursor.readPage().dump());
+                }
+            }
+        }
+    }
+
+    @Test
+    void should_read_file_with_concurrent_cursors() throws Exception {
+        List<byte[]> pages = createPages(500);
+        Path file = TestUtil.createFile(pages);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (OggFileIndex index = OggFileIndex.open(file)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 32; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    try (OggStream cursor = OggStream.from(index)) {
+                        OggPage reuse = OggPage.empty();
+                        for (int i = 0; i < 50; i++) {
+                            int target = random.nextInt(400) + 2;
+                            long granulePosition = target * 100L - random.nextInt(100);
+                            // The last page of stream 1 before the target
+                            int expected = target - 1;
+                            while (expected % 5 == 0) {
+                                expected--;
+                            }
+                            assertEquals(expected * 100L, cursor.seekToGranule(1, granulePosition));
+                            int next = target;
+                            while (next % 5 == 0) {
+                                next++;
+                            }
+                            assertArrayEquals(pages.get(next), cursor.readPage(1, reuse).dump());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            try (OggStream cursor = OggStream.from(index)) {
+                for (byte[] page : pages) {
+                    assertArrayEquals(page, cursor.readPage().dump());
+                }
+                assertNull(cursor.readPage());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<byte[]> createPages(int count) {
+        Random random = new Random(11);
+        return TestUtil.createPages(count, i -> TestUtil.createOggPage(i % 5 == 0 ? 2 : 1, i, i * 100L,
+                TestUtil.createBinary(random.nextInt(3000), (byte) i)));
+    }
+}
@@ -1,6 +1,8 @@
 package org.chenliang.oggus.test;
 
+import org.chenliang.oggus.ogg.OggBlockCache;
 import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggStream;
 import org.chenliang.oggus.opus.*;
 import org.chenliang.oggus.util.Bytes;
 import org.junit.jupiter.api.Disabled;
@@ -8,8 +10,13 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -17,6 +24,7 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class OggOpusStreamTest {
     @Test
@@ -65,6 +73,22 @@ class OggOpusStreamTest {
         assertEquals("No ID Header data in this opus file", exception.getMessage());
     }
 
+    @Test
+    void should_stop_searching_id_header_at_first_page_after_bos_pages() {
+        OggPage bosPage = createOggPage(0, 0, new byte[]{1, 'v', 'o', 'r', 'b', 'i', 's'});
+        bosPage.setBOS();
+        OggPage dataPage = createOggPage(0, 1, TestUtil.createBinary(100, (byte) 1));
+        byte[] truncatedPage = createOggPage(0, 2, TestUtil.createBinary(100, (byte) 2)).dump();
+        byte[] data = Bytes.concat(bosPage.dump(), dataPage.dump(),
+                Arrays.copyOf(truncatedPage, truncatedPage.length - 1));
+
+        InvalidOpusException exception = assertThrows(InvalidOpusException.class, () -> {
+            OggOpusStream.from(new ByteArrayInputStream(data));
+        });
+
+        assertEquals("No ID Header data in this opus file", exception.getMessage());
+    }
+
     @Test
     void should_throw_exception_if_id_header_page_contains_other_data() {
         IdHeader idHeader = createIdHeader();
@@ -176,6 +200,35 @@ class OggOpusStreamTest {
         TestUtil.assertOpusPacketEqual(opusPacket, audioDataPacket.getOpusPackets().get(0));
     }
 
+    @Test
+    void should_read_ogg_stream_with_audio_data_packet_spans_many_pages() throws IOException {
+        OggPage oggPage1 = createOggPage(0, 0, createIdHeader().dump());
+        oggPage1.setBOS();
+        OggPage oggPage2 = createOggPage(0, 1, createCommentHeader().dump());
+
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(0), Channel.MONO, 0);
+        opusPacket.addFrame(TestUtil.createBinary(255 * 255 * 10, (byte) 1));
+        byte[] audioData = opusPacket.dumpToStandardFormat();
+        byte[] oggStreamData = Bytes.concat(oggPage1.dump(), oggPage2.dump());
+        int seqNum = 2;
+        int offset = 0;
+        for (; audioData.length - offset > 255 * 255; offset += 255 * 255) {
+            OggPage oggPage = createOggPage(-1, seqNum++);
+            oggPage.addPartialDataPacket(Arrays.copyOfRange(audioData, offset, offset + 255 * 255));
+            oggStreamData = Bytes.concat(oggStreamData, oggPage.dump());
+        }
+        OggPage lastPage = createOggPage(40, seqNum,
+                Arrays.copyOfRange(audioData, offset, audioData.length), createAudioData(2, 10));
+        lastPage.setEOS();
+        oggStreamData = Bytes.concat(oggStreamData, lastPage.dump());
+
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(oggStreamData));
+
+        TestUtil.assertOpusPacketEqual(opusPacket, oggOpusStream.readAudioPacket().getOpusPackets().get(0));
+        assertEquals(2, readFirstFrameByte(oggOpusStream));
+        assertNull(oggOpusStream.readAudioPacket());
+    }
+
     @Test
     void should_read_ogg_stream_with_a_page_that_contains_multiple_packets() throws IOException {
         OggPage oggPage1 = createOggPage(0, 0, createIdHeader().dump());
@@ -255,6 +308,224 @@ class OggOpusStreamTest {
         assertNull(oggOpusStream.readAudioPacket());
     }
 
+    @Test
+    void should_get_duration_from_last_page_of_opus_stream() throws IOException {
+        IdHeader idHeader = createIdHeader();
+        OggPage oggPage1 = createOggPage(0, 0, idHeader.dump());
+        oggPage1.setBOS();
+        OggPage oggPage2 = createOggPage(0, 1, createCommentHeader().dump());
+        OggPage oggPage3 = createOggPage(127 + 48000, 2, TestUtil.createBinary(20000, (byte) 1));
+        OggPage oggPage4 = createOggPage(127 + 48000 * 2 + 24000, 3, TestUtil.createBinary(20000, (byte) 2));
+        OggPage otherStreamPage = createOggPage(48000 * 10, 0, TestUtil.createBinary(100, (byte) 3));
+        otherStreamPage.setSerialNum(2);
+        byte[] truncatedPage = createOggPage(48000 * 20, 4, TestUtil.createBinary(100, (byte) 4)).dump();
+
+        Path file = TestUtil.createFile(oggPage1.dump(), oggPage2.dump(), oggPage3.dump(), oggPage4.dump(),
+                otherStreamPage.dump(), Arrays.copyOf(truncatedPage, truncatedPage.length - 10));
+
+        OggOpusStream oggOpusStream = OggOpusStream.from(file.toString());
+        assertEquals(Duration.ofMillis(2500), oggOpusStream.getDuration());
+        assertEquals(1, oggOpusStream.readAudioPacket().getOpusPackets().size());
+        assertEquals(Duration.ofMillis(2500), OggOpusStream.map(file).getDuration());
+        assertThrows(UnsupportedOperationException.class,
+                () -> OggOpusStream.from(Files.newInputStream(file)).getDuration());
+    }
+
+    @Test
+    void should_only_read_tail_to_get_duration_of_single_link() throws IOException {
+        IdHeader idHeader = createIdHeader();
+        OggPage idHeaderPage = createOggPage(0, 0, idHeader.dump());
+        idHeaderPage.setBOS();
+        List<byte[]> pages = new ArrayList<>();
+        pages.add(idHeaderPage.dump());
+        pages.add(createOggPage(0, 1, createCommentHeader().dump()).dump());
+        pages.addAll(TestUtil.createPages(100, i -> createOggPage(127 + 960 * (i + 1), i + 2,
+                TestUtil.createBinary(10000, (byte) i))));
+        Path file = TestUtil.createFile(pages);
+        OggBlockCache cache = OggBlockCache.of(16 * 1024 * 1024);
+
+        try (OggOpusStream oggOpusStream = OggOpusStream.from(file, cache)) {
+            long missCount = cache.getMissCount();
+            assertEquals(Duration.ofMillis(2000), oggOpusStream.getDuration());
+            assertTrue(cache.getMissCount() - missCount <= 2);
+        }
+    }
+
+    @Test
+    void should_only_read_tail_to_get_duration_of_single_link_ending_with_another_stream() throws IOException {
+        OggPage idHeaderPage = createOggPage(0, 0, createIdHeader().dump());
+        idHeaderPage.setBOS();
+        OggPage otherBosPage = createOggPage(0, 0, TestUtil.createBinary(100, (byte) 1));
+        otherBosPage.setSerialNum(2);
+        otherBosPage.setBOS();
+        List<byte[]> pages = new ArrayList<>();
+        pages.add(idHeaderPage.dump());
+        pages.add(otherBosPage.dump());
+        pages.add(createOggPage(0, 1, createCommentHeader().dump()).dump());
+        pages.addAll(TestUtil.createPages(200, i -> {
+            if (i % 2 == 0) {
+                return createOggPage(127 + 960 * (i / 2 + 1), i / 2 + 2, TestUtil.createBinary(10000, (byte) i));
+            }
+            OggPage otherPage = createOggPage(i / 2 + 1, i / 2 + 1, TestUtil.createBinary(100, (byte) i));
+            otherPage.setSerialNum(2);
+            return otherPage;
+        }));
+        Path file = TestUtil.createFile(pages);
+        OggBlockCache cache = OggBlockCache.of(16 * 1024 * 1024);
+
+        try (OggOpusStream oggOpusStream = OggOpusStream.from(file, cache)) {
+            long missCount = cache.getMissCount();
+            assertEquals(Duration.ofMillis(2000), oggOpusStream.getDuration());
+            assertTrue(cache.getMissCount() - missCount <= 2);
+            assertEquals(1, oggOpusStream.getLinks().size());
+        }
+    }
+
+    @Test
+    void should_seek_to_granule_position_of_opus_stream() throws IOException {
+        IdHeader idHeader = createIdHeader();
+        OggPage oggPage1 = createOggPage(0, 0, idHeader.dump());
+        oggPage1.setBOS();
+        OggPage oggPage2 = createOggPage(0, 1, createCommentHeader().dump());
+        byte[] data = Bytes.concat(oggPage1.dump(), oggPage2.dump());
+        // Page i ends packet i and starts packet i + 1, which is continued in page i + 1
+        for (int i = 0; i < 50; i++) {
+            OggPage oggPage = createOggPage(127 + (i + 1) * 960, i + 2);
+            byte[] audioData = createAudioData(i, 1000);
+            if (i > 0) {
+                oggPage.setContinued();
+                audioData = Arrays.copyOfRange(audioData, 255 * 2, audioData.length);
+            }
+            oggPage.addDataPacket(audioData);
+            oggPage.addPartialDataPacket(Arrays.copyOf(createAudioData(i + 1, 1000), 255 * 2));
+            if (i == 49) {
+                oggPage.setEOS();
+            }
+            data = Bytes.concat(data, oggPage.dump());
+        }
+        Path file = TestUtil.createFile(data);
+
+        OggOpusStream oggOpusStream = OggOpusStream.map(file);
+        assertEquals(127 + 19 * 960, oggOpusStream.seekToGranule(127 + 20 * 960 + 1));
+        assertEquals(20, readFirstFrameByte(oggOpusStream));
+        assertEquals(21, readFirstFrameByte(oggOpusStream));
+
+        assertEquals(0, oggOpusStream.seekToGranule(0));
+        assertEquals(0, readFirstFrameByte(oggOpusStream));
+
+        OggOpusStream recording = OggOpusStream.from(file.toString());
+        recording.setKeypointRecording(OggStream.DEFAULT_MAX_KEYPOINTS);
+        while (recording.readAudioPacket() != null) {
+        }
+        assertEquals(127 + 19 * 960, recording.seekToGranule(127 + 20 * 960 + 1));
+        assertEquals(20, readFirstFrameByte(recording));
+    }
+
+    @Test
+    void should_read_and_seek_across_links_of_chained_stream() throws IOException {
+        byte[] data = new byte[0];
+        for (int link = 0; link < 3; link++) {
+            data = Bytes.concat(data, createLink(link));
+        }
+
+        OggOpusStream sequential = OggOpusStream.from(new ByteArrayInputStream(data));
+        for (int link = 0; link < 3; link++) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(link * 10 + i, readFirstFrameByte(sequential));
+                assertEquals(link, sequential.getLinkIndex());
+            }
+            assertEquals("[Link " + link + "]", sequential.getCommentHeader().getTags().get("TITLE").toString());
+        }
+        assertNull(sequential.readAudioPacket());
+
+        Path file = TestUtil.createFile(data);
+        OggOpusStream oggOpusStream = OggOpusStream.map(file);
+        List<OggOpusLink> links = oggOpusStream.getLinks();
+        assertEquals(3, links.size());
+        long offset = 0;
+        for (int link = 0; link < 3; link++) {
+            assertEquals(link + 1, links.get(link).getSerialNum());
+            assertEquals(offset, links.get(link).getStartOffset());
+            assertEquals(link * 9600, links.get(link).getStartSample());
+            assertEquals(9600, links.get(link).getSampleCount());
+            offset = links.get(link).getEndOffset();
+        }
+        assertEquals(data.length, offset);
+        assertEquals(Duration.ofMillis(600), oggOpusStream.getDuration());
+        assertEquals(0, readFirstFrameByte(oggOpusStream));
+
+        assertEquals(9600 + 960 * 5, oggOpusStream.seekToSample(9600 + 960 * 5 + 10));
+        assertEquals(1, oggOpusStream.getLinkIndex());
+        assertEquals("[Link 1]", oggOpusStream.getCommentHeader().getTags().get("TITLE").toString());
+        assertEquals(15, readFirstFrameByte(oggOpusStream));
+
+        assertEquals(19200, oggOpusStream.seekToSample(19200));
+        assertEquals(20, readFirstFrameByte(oggOpusStream));
+        assertEquals(127 + 960 * 3, oggOpusStream.seekToGranule(127 + 960 * 3 + 1));
+        assertEquals(23, readFirstFrameByte(oggOpusStream));
+
+        assertEquals(0, oggOpusStream.seekToSample(100));
+        assertEquals(0, readFirstFrameByte(oggOpusStream));
+    }
+
+    @Test
+    void should_skip_pages_of_other_streams_left_before_next_link() throws IOException {
+        OggPage otherBosPage = createOggPage(0, 0, TestUtil.createBinary(100, (byte) 1));
+        otherBosPage.setSerialNum(100);
+        otherBosPage.setBOS();
+        List<byte[]> data = new ArrayList<>();
+        data.add(otherBosPage.dump());
+        data.add(createLink(0));
+        data.addAll(TestUtil.createPages(20, i -> {
+            OggPage otherPage = createOggPage(i + 1, i + 1, TestUtil.createBinary(30000, (byte) i));
+            otherPage.setSerialNum(100);
+            return otherPage;
+        }));
+        data.add(createLink(1));
+        Path file = TestUtil.createFile(data);
+
+        for (OggOpusStream oggOpusStream : new OggOpusStream[]{OggOpusStream.from(Files.newInputStream(file)),
+                OggOpusStream.from(file.toString())}) {
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i, readFirstFrameByte(oggOpusStream));
+                assertEquals(i / 10, oggOpusStream.getLinkIndex());
+            }
+            assertNull(oggOpusStream.readAudioPacket());
+            oggOpusStream.close();
+        }
+    }
+
+    private byte[] createLink(int link) {
+        OggPage idHeaderPage = createOggPage(0, 0, createIdHeader().dump());
+        idHeaderPage.setSerialNum(link + 1);
+        idHeaderPage.setBOS();
+        CommentHeader commentHeader = CommentHeader.emptyHeader();
+        commentHeader.setVendor("test vendor");
+        commentHeader.addTag("TITLE", "Link " + link);
+        OggPage commentHeaderPage = createOggPage(0, 1, commentHeader.dump());
+        commentHeaderPage.setSerialNum(link + 1);
+        byte[] data = Bytes.concat(idHeaderPage.dump(), commentHeaderPage.dump());
+        for (int i = 0; i < 10; i++) {
+            OggPage oggPage = createOggPage(127 + (i + 1) * 960, i + 2, createAudioData(link * 10 + i, 100));
+            oggPage.setSerialNum(link + 1);
+            if (i == 9) {
+                oggPage.setEOS();
+            }
+            data = Bytes.concat(data, oggPage.dump());
+        }
+        return data;
+    }
+
+    private static byte[] createAudioData(int index, int length) {
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(0), Channel.MONO, 0);
+        opusPacket.addFrame(TestUtil.createBinary(length, (byte) index));
+        return opusPacket.dumpToStandardFormat();
+    }
+
+    private static int readFirstFrameByte(OggOpusStream oggOpusStream) throws IOException {
+        return oggOpusStream.readAudioPacket().getOpusPackets().get(0).getFrames().get(0)[0];
+    }
+
     private CommentHeader createCommentHeader() {
         CommentHeader commentHeader = CommentHeader.emptyHeader();
         commentHeader.setVendor("test vendor");
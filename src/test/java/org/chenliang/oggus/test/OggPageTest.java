@@ -3,11 +3,18 @@ package org.chenliang.oggus.test;
 import org.chenliang.oggus.ogg.InvalidOggException;
 import org.chenliang.oggus.ogg.OggPage;
 import org.chenliang.oggus.util.Bytes;
+import org.chenliang.oggus.util.CRCUtil;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -143,4 +150,115 @@ class OggPageTest {
         int checkSum = oggPage.getCheckSum();
         assertEquals(222, checkSum);
     }
-}
\ No newline at end of file
+
+    @Test
+    void should_dump_ogg_page_into_supplied_buffer() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setGranulePosition(257);
+        oggPage.addDataPacket(TestUtil.createBinary(456, (byte) 1));
+        byte[] expectedBytes = oggPage.dump();
+        oggPage.setCheckSum(0);
+
+        byte[] buf = new byte[expectedBytes.length + 2];
+        assertEquals(expectedBytes.length, oggPage.getPageSize());
+        assertEquals(expectedBytes.length, oggPage.dump(buf, 2));
+        assertArrayEquals(expectedBytes, Arrays.copyOfRange(buf, 2, buf.length));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(expectedBytes.length);
+        oggPage.dump(direct);
+        assertEquals(expectedBytes.length, direct.position());
+        byte[] actualBytes = new byte[expectedBytes.length];
+        direct.flip();
+        direct.get(actualBytes);
+        assertArrayEquals(expectedBytes, actualBytes);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> oggPage.dump(new byte[10], 0));
+    }
+
+    @Test
+    void should_recalculate_checksum_after_fields_are_modified() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.addDataPacket(TestUtil.createBinary(10, (byte) 1));
+        int checkSum = oggPage.getCheckSum();
+
+        oggPage.setSeqNum(1);
+        int modifiedCheckSum = oggPage.getCheckSum();
+        assertNotEquals(checkSum, modifiedCheckSum);
+
+        oggPage.setSeqNum(0);
+        assertEquals(checkSum, oggPage.getCheckSum());
+
+        oggPage.setEOS();
+        byte[] dumpData = oggPage.dump();
+        assertEquals(CRCUtil.getCRC(zeroCheckSum(dumpData)), oggPage.getCheckSum());
+    }
+
+    private static byte[] zeroCheckSum(byte[] pageData) {
+        byte[] copy = pageData.clone();
+        Arrays.fill(copy, OggPage.CHECKSUM_OFFSET, OggPage.CHECKSUM_OFFSET + 4, (byte) 0);
+        return copy;
+    }
+
+    @Test
+    void should_locate_data_packets_in_payload() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.addDataPacket(TestUtil.createBinary(300, (byte) 1));
+        oggPage.addDataPacket(TestUtil.createBinary(10, (byte) 2), 0, 5);
+        oggPage.addPartialDataPacket(TestUtil.createBinary(255, (byte) 3));
+
+        assertEquals(3, oggPage.getPacketCount());
+        assertEquals(560, oggPage.getPayloadLength());
+        assertEquals(305, oggPage.getPacketOffset(2));
+        assertEquals(5, oggPage.getPacketLength(1));
+        assertEquals(3, oggPage.getPayload()[oggPage.getPacketOffset(2)]);
+        assertArrayEquals(new byte[]{(byte) 255, 45, 5, (byte) 255}, oggPage.getLaceValues());
+        assertArrayEquals(TestUtil.createBinary(5, (byte) 2), oggPage.getDataPackets().get(1));
+    }
+
+    @Test
+    void should_reuse_arrays_after_reset() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setBOS();
+        oggPage.setSerialNum(1);
+        oggPage.addDataPacket(TestUtil.createBinary(1000, (byte) 1));
+        byte[] payload = oggPage.getPayload();
+
+        oggPage.reset();
+        assertFalse(oggPage.isBOS());
+        assertEquals(0, oggPage.getSerialNum());
+        assertEquals(0, oggPage.getSegCount());
+        assertEquals(0, oggPage.getPacketCount());
+        assertTrue(oggPage.getDataPackets().isEmpty());
+        assertFalse(oggPage.isCompleted());
+
+        oggPage.addDataPacket(TestUtil.createBinary(10, (byte) 2));
+        assertSame(payload, oggPage.getPayload());
+        assertEquals(OggPage.HEADER_SIZE + 1 + 10, oggPage.dump().length);
+        OggPage expected = OggPage.empty();
+        expected.addDataPacket(TestUtil.createBinary(10, (byte) 2));
+        assertArrayEquals(expected.dump(), oggPage.dump());
+    }
+
+    @Test
+    void should_return_copies_of_data_packets() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.addDataPacket(TestUtil.createBinary(10, (byte) 1));
+        byte[] dump = oggPage.dump();
+
+        List<byte[]> dataPackets = oggPage.getDataPackets();
+        assertThrows(UnsupportedOperationException.class, () -> dataPackets.add(new byte[1]));
+        dataPackets.get(0)[0] = 2;
+        oggPage.getLaceValues()[0] = 0;
+
+        assertEquals(1, oggPage.getDataPackets().get(0)[0]);
+        assertEquals(10, oggPage.getLaceValue(0));
+        assertArrayEquals(dump, oggPage.dump());
+    }
+
+    @Test
+    void should_throw_exception_when_adding_more_than_255_segments() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.addDataPacket(new byte[255 * 254]);
+        assertThrows(InvalidOggException.class, () -> oggPage.addDataPacket(new byte[255]));
+    }
+}
@@ -0,0 +1,94 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.ogg.InvalidOggException;
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggPageView;
+import org.chenliang.oggus.util.Bytes;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggPageViewTest {
+    @Test
+    void should_decode_header_fields() {
+        OggPage oggPage = createOggPage();
+        ByteBuffer buffer = ByteBuffer.wrap(Bytes.concat(new byte[5], oggPage.dump()));
+
+        OggPageView view = OggPageView.wrap(buffer, 5);
+
+        assertEquals(5, view.getIndex());
+        assertEquals(oggPage.getPageSize(), view.getPageSize());
+        assertEquals(0, view.getVersion());
+        assertTrue(view.isBOS());
+        assertFalse(view.isEOS());
+        assertEquals(-2, view.getGranulePosition());
+        assertEquals(0xffffffffL, view.getSerialNum());
+        assertEquals(1025, view.getSeqNum());
+        assertEquals(oggPage.getCheckSum(), view.getCheckSum());
+        assertTrue(view.isCheckSumValid());
+        assertEquals(5, view.getSegCount());
+        assertFalse(view.isCompleted());
+    }
+
+    @Test
+    void should_locate_data_packets_without_copying() {
+        OggPage oggPage = createOggPage();
+        byte[] pageData = oggPage.dump();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(pageData.length);
+        buffer.put(pageData);
+
+        OggPageView view = OggPageView.wrap(buffer, 0);
+
+        assertEquals(3, view.getPacketCount());
+        assertEquals(OggPage.HEADER_SIZE + 5, view.getPacketIndex(0));
+        assertEquals(456, view.getPacketLength(0));
+        assertEquals(OggPage.HEADER_SIZE + 5 + 456, view.getPacketIndex(1));
+        assertEquals(0, view.getPacketLength(1));
+        assertEquals(510, view.getPacketLength(2));
+        assertEquals(view.getPacketIndex(2) + 510, view.getPageSize());
+
+        ByteBuffer packet = view.getPacket(0);
+        assertEquals(456, packet.remaining());
+        assertEquals(1, packet.get(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.getPacketLength(3));
+    }
+
+    @Test
+    void should_copy_to_ogg_page() {
+        OggPage oggPage = createOggPage();
+        OggPage copy = OggPageView.wrap(ByteBuffer.wrap(oggPage.dump())).toOggPage();
+
+        assertArrayEquals(oggPage.getLaceValues(), copy.getLaceValues());
+        assertArrayEquals(oggPage.getDataPackets().toArray(), copy.getDataPackets().toArray());
+        assertArrayEquals(oggPage.dump(), copy.dump());
+    }
+
+    @Test
+    void should_throw_exception_when_page_is_incomplete() {
+        byte[] pageData = createOggPage().dump();
+        ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOf(pageData, pageData.length - 1));
+
+        InvalidOggException exception = assertThrows(InvalidOggException.class, () -> OggPageView.wrap(buffer));
+
+        assertEquals("Incomplete Ogg page", exception.getMessage());
+    }
+
+    private OggPage createOggPage() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setBOS();
+        oggPage.setGranulePosition(-2);
+        oggPage.setSerialNum(0xffffffffL);
+        oggPage.setSeqNum(1025);
+        oggPage.addDataPacket(TestUtil.createBinary(456, (byte) 1));
+        oggPage.addDataPacket(new byte[0]);
+        oggPage.addPartialDataPacket(TestUtil.createBinary(510, (byte) 2));
+        return oggPage;
+    }
+}
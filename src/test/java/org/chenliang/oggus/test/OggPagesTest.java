@@ -0,0 +1,67 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.ogg.InvalidOggException;
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggPages;
+import org.chenliang.oggus.util.Bytes;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OggPagesTest {
+    @Test
+    void should_get_page_size_from_lace_values() {
+        byte[] pageData = createOggPage(257, 1, 1).dump();
+
+        assertEquals(741, OggPages.getPageSize(pageData, 0));
+    }
+
+    @Test
+    void should_patch_header_fields_and_checksum() {
+        byte[] pageData = Bytes.concat(new byte[3], createOggPage(257, 1, 1).dump());
+
+        OggPages.setGranulePosition(pageData, 3, 123456789012L);
+        OggPages.setSerialNum(pageData, 3, 0xfedcba98L);
+        OggPages.setSeqNum(pageData, 3, 42);
+
+        byte[] expected = Bytes.concat(new byte[3], createOggPage(123456789012L, 0xfedcba98L, 42).dump());
+        assertArrayEquals(expected, pageData);
+    }
+
+    @Test
+    void should_patch_page_in_direct_byte_buffer() {
+        byte[] pageData = createOggPage(-1, 7, 9).dump();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(pageData.length);
+        buffer.put(pageData);
+
+        OggPages.setSeqNum(buffer, 0, 10);
+
+        byte[] actual = new byte[pageData.length];
+        buffer.flip();
+        buffer.get(actual);
+        assertArrayEquals(createOggPage(-1, 7, 10).dump(), actual);
+    }
+
+    @Test
+    void should_throw_exception_when_patching_data_that_is_not_a_page() {
+        InvalidOggException exception = assertThrows(InvalidOggException.class, () -> {
+            OggPages.setSeqNum(new byte[OggPage.HEADER_SIZE], 0, 1);
+        });
+
+        assertEquals("Not an Ogg page", exception.getMessage());
+    }
+
+    private OggPage createOggPage(long granulePosition, long serialNum, long seqNum) {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setGranulePosition(granulePosition);
+        oggPage.setSerialNum(serialNum);
+        oggPage.setSeqNum(seqNum);
+        oggPage.addDataPacket(TestUtil.createBinary(456, (byte) 1));
+        oggPage.addPartialDataPacket(TestUtil.createBinary(255, (byte) 2));
+        return oggPage;
+    }
+}
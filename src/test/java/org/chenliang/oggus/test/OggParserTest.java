@@ -0,0 +1,198 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.ogg.CheckSumPolicy;
+import org.chenliang.oggus.ogg.InvalidOggException;
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggPageView;
+import org.chenliang.oggus.ogg.OggParser;
+import org.chenliang.oggus.util.Bytes;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggParserTest {
+    private static final int MAX_SEG_COUNT = 8;
+
+    @Test
+    void should_parse_pages_and_packets_fed_in_chunks_of_any_size() {
+        Random random = new Random(11);
+        List<byte[]> packets = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            packets.add(TestUtil.createBinary(random.nextInt(3000), (byte) i));
+        }
+        List<byte[]> pages = paginate(packets, 1);
+        byte[] data = Bytes.concat("junkOgg".getBytes(), concat(pages), "Og".getBytes());
+
+        for (int chunkSize : new int[]{1, 3, 27, 100, 4096, data.length}) {
+            Collector collector = new Collector();
+            OggParser parser = new OggParser(collector);
+            for (int from = 0; from < data.length; from += chunkSize) {
+                byte[] chunk = Arrays.copyOfRange(data, from, Math.min(data.length, from + chunkSize));
+                parser.feed(ByteBuffer.wrap(chunk));
+            }
+            assertEquals(pages.size(), collector.pageCount);
+            assertEquals(packets.size(), collector.packets.size());
+            for (int i = 0; i < packets.size(); i++) {
+                assertArrayEquals(packets.get(i), collector.packets.get(i));
+            }
+            assertTrue(parser.hasPartialPage());
+        }
+    }
+
+    @Test
+    void should_parse_multiplexed_pages_from_direct_buffer() {
+        List<byte[]> packets1 = Arrays.asList(TestUtil.createBinary(3000, (byte) 1),
+                TestUtil.createBinary(10, (byte) 2));
+        List<byte[]> packets2 = Arrays.asList(TestUtil.createBinary(2500, (byte) 3),
+                TestUtil.createBinary(20, (byte) 4));
+        List<byte[]> pages1 = paginate(packets1, 1);
+        List<byte[]> pages2 = paginate(packets2, 2);
+        List<byte[]> pages = new ArrayList<>();
+        for (int i = 0; i < Math.max(pages1.size(), pages2.size()); i++) {
+            if (i < pages1.size()) {
+                pages.add(pages1.get(i));
+            }
+            if (i < pages2.size()) {
+                pages.add(pages2.get(i));
+            }
+        }
+        byte[] data = concat(pages);
+        ByteBuffer chunk = ByteBuffer.allocateDirect(data.length);
+        chunk.put(data).flip();
+
+        Collector collector = new Collector();
+        new OggParser(collector).feed(chunk);
+
+        assertFalse(chunk.hasRemaining());
+        assertEquals(4, collector.packets.size());
+        assertEquals(Arrays.asList(1L, 1L, 2L, 2L), collector.serialNums);
+        assertEquals(Arrays.asList(-1L, 2000L, -1L, 2000L), collector.granulePositions);
+        assertArrayEquals(packets1.get(0), collector.packets.get(0));
+        assertArrayEquals(packets1.get(1), collector.packets.get(1));
+        assertArrayEquals(packets2.get(0), collector.packets.get(2));
+        assertArrayEquals(packets2.get(1), collector.packets.get(3));
+    }
+
+    @Test
+    void should_drop_corrupted_page_and_its_packets_with_lenient_policy() {
+        // The second packet spans the 3 pages
+        List<byte[]> packets = Arrays.asList(TestUtil.createBinary(100, (byte) 1),
+                TestUtil.createBinary(4000, (byte) 2), TestUtil.createBinary(100, (byte) 3));
+        List<byte[]> pages = paginate(packets, 1);
+        byte[] corrupted = pages.get(1);
+        corrupted[corrupted.length - 1] ^= 1;
+
+        Collector collector = new Collector();
+        OggParser parser = new OggParser(collector);
+        parser.setCheckSumPolicy(CheckSumPolicy.LENIENT);
+        byte[] data = concat(pages);
+        parser.feed(ByteBuffer.wrap(data, 0, 1000));
+        parser.feed(ByteBuffer.wrap(data, 1000, data.length - 1000));
+
+        assertEquals(1, parser.getFailedPageCount());
+        assertEquals(pages.size() - 1, collector.pageCount);
+        assertEquals(2, collector.packets.size());
+        assertArrayEquals(packets.get(0), collector.packets.get(0));
+        assertArrayEquals(packets.get(2), collector.packets.get(1));
+    }
+
+    @Test
+    void should_throw_exception_when_checksum_mismatch_with_strict_policy() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.addDataPacket(TestUtil.createBinary(100, (byte) 1));
+        byte[] pageData = oggPage.dump();
+        pageData[pageData.length - 1] ^= 1;
+        byte[] data = Bytes.concat(pageData, oggPage.dump());
+
+        Collector collector = new Collector();
+        OggParser parser = new OggParser(collector);
+        parser.setCheckSumPolicy(CheckSumPolicy.STRICT);
+        ByteBuffer chunk = ByteBuffer.wrap(data);
+        assertThrows(InvalidOggException.class, () -> parser.feed(chunk));
+        assertEquals(pageData.length, chunk.position());
+        parser.feed(chunk);
+        assertEquals(1, collector.pageCount);
+    }
+
+    /**
+     * Lay out packets into pages of at most {@link #MAX_SEG_COUNT} segments, continuing packets over pages.
+     */
+    private static List<byte[]> paginate(List<byte[]> packets, long serialNum) {
+        List<byte[]> pages = new ArrayList<>();
+        OggPage oggPage = newPage(serialNum, 0);
+        int segCount = 0;
+        for (byte[] packet : packets) {
+            int offset = 0;
+            while (true) {
+                int length = packet.length - offset;
+                if (length / 255 + 1 <= MAX_SEG_COUNT - segCount) {
+                    oggPage.addDataPacket(Arrays.copyOfRange(packet, offset, packet.length));
+                    oggPage.setGranulePosition((pages.size() + 1) * 1000L);
+                    segCount += length / 255 + 1;
+                    break;
+                }
+                int partialLength = (MAX_SEG_COUNT - segCount) * 255;
+                if (partialLength > 0) {
+                    oggPage.addPartialDataPacket(Arrays.copyOfRange(packet, offset, offset + partialLength));
+                    offset += partialLength;
+                }
+                pages.add(oggPage.dump());
+                oggPage = newPage(serialNum, pages.size());
+                if (partialLength > 0) {
+                    oggPage.setContinued();
+                }
+                segCount = 0;
+            }
+        }
+        pages.add(oggPage.dump());
+        return pages;
+    }
+
+    private static OggPage newPage(long serialNum, int seqNum) {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setSerialNum(serialNum);
+        oggPage.setSeqNum(seqNum);
+        oggPage.setGranulePosition(-1);
+        return oggPage;
+    }
+
+    private static byte[] concat(List<byte[]> pages) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] page : pages) {
+            out.write(page, 0, page.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static class Collector implements OggParser.Listener {
+        private int pageCount;
+        private final List<byte[]> packets = new ArrayList<>();
+        private final List<Long> serialNums = new ArrayList<>();
+        private final List<Long> granulePositions = new ArrayList<>();
+
+        @Override
+        public void onPage(OggPageView page) {
+            pageCount++;
+        }
+
+        @Override
+        public void onPacket(long serialNum, ByteBuffer packet, long granulePosition) {
+            byte[] data = new byte[packet.remaining()];
+            packet.get(data);
+            packets.add(data);
+            serialNums.add(serialNum);
+            granulePositions.add(granulePosition);
+        }
+    }
+}
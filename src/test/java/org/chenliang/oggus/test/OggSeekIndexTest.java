@@ -0,0 +1,137 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.ogg.InvalidOggException;
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggSeekIndex;
+import org.chenliang.oggus.ogg.OggStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggSeekIndexTest {
+    @Test
+    void should_build_write_and_load_seek_index() throws IOException {
+        Path file = TestUtil.createFile(createMultiplexedPages(200));
+        OggSeekIndex index = OggSeekIndex.build(file, 8 * 1024);
+        Path indexFile = OggSeekIndex.sidecarOf(file);
+        indexFile.toFile().deleteOnExit();
+        index.write(indexFile);
+
+        OggSeekIndex loaded = OggSeekIndex.load(indexFile);
+        assertEquals(file.getFileName() + ".idx", indexFile.getFileName().toString());
+        assertEquals(Files.size(file), loaded.getSourceSize());
+        assertEquals(8 * 1024, loaded.getSpacing());
+        assertArrayEquals(new long[]{1, 2}, loaded.getSerialNums());
+        int keypointCount = loaded.getKeypointCount(1);
+        assertTrue(keypointCount > 10);
+        assertEquals(1000, loaded.getGranulePosition(1, 0));
+        for (int i = 1; i < keypointCount; i++) {
+            assertTrue(loaded.getGranulePosition(1, i) > loaded.getGranulePosition(1, i - 1));
+            assertTrue(loaded.getOffset(1, i) - loaded.getOffset(1, i - 1) >= 8 * 1024);
+        }
+        assertEquals(-1, loaded.findKeypoint(1, 1000));
+        assertEquals(0, loaded.findKeypoint(1, 1001));
+        assertEquals(keypointCount - 1, loaded.findKeypoint(1, Long.MAX_VALUE));
+    }
+
+    @Test
+    void should_seek_with_sidecar_index_like_without() throws IOException {
+        Path file = TestUtil.createFile(createMultiplexedPages(300));
+        Path indexFile = OggSeekIndex.sidecarOf(file);
+        indexFile.toFile().deleteOnExit();
+        OggSeekIndex.build(file, 4 * 1024).write(indexFile);
+
+        try (OggStream indexed = OggStream.from(file.toString()); OggStream searched = OggStream.map(file)) {
+            assertNotNull(indexed.getSeekIndex());
+            searched.setSeekIndex(null);
+            for (long target = 0; target <= 310000; target += 7777) {
+                assertEquals(searched.seekToGranule(1, target), indexed.seekToGranule(1, target));
+                assertEquals(searched.getPosition(), indexed.getPosition());
+                OggPage expected = searched.readPage(1);
+                OggPage actual = indexed.readPage(1);
+                assertEquals(expected == null ? -1 : expected.getSeqNum(), actual == null ? -1 : actual.getSeqNum());
+            }
+        }
+    }
+
+    @Test
+    void should_build_seek_index_of_file_with_truncated_last_page() throws IOException {
+        byte[] pages = createMultiplexedPages(50);
+        OggPage lastPage = OggPage.empty();
+        lastPage.setSerialNum(1);
+        lastPage.setGranulePosition(100000);
+        lastPage.addDataPacket(TestUtil.createBinary(3000, (byte) 1));
+        byte[] lastPageData = lastPage.dump();
+        Path file = TestUtil.createFile(pages, Arrays.copyOf(lastPageData, lastPageData.length - 10));
+
+        OggSeekIndex index = OggSeekIndex.build(file, 1024);
+        OggSeekIndex complete = OggSeekIndex.build(TestUtil.createFile(pages), 1024);
+        assertEquals(Files.size(file), index.getSourceSize());
+        assertArrayEquals(complete.getSerialNums(), index.getSerialNums());
+        int keypointCount = complete.getKeypointCount(1);
+        assertEquals(keypointCount, index.getKeypointCount(1));
+        assertEquals(complete.getGranulePosition(1, keypointCount - 1), index.getGranulePosition(1, keypointCount - 1));
+    }
+
+    @Test
+    void should_ignore_stale_sidecar_index() throws IOException {
+        Path file = TestUtil.createFile(createMultiplexedPages(10));
+        Path indexFile = OggSeekIndex.sidecarOf(file);
+        indexFile.toFile().deleteOnExit();
+        OggSeekIndex.build(file, OggSeekIndex.DEFAULT_SPACING).write(indexFile);
+        Files.write(file, createMultiplexedPages(1), StandardOpenOption.APPEND);
+
+        try (OggStream oggStream = OggStream.map(file)) {
+            assertNull(oggStream.getSeekIndex());
+        }
+    }
+
+    @Test
+    void should_throw_exception_when_loading_invalid_index() throws IOException {
+        Path file = TestUtil.createFile(createMultiplexedPages(1));
+
+        InvalidOggException exception = assertThrows(InvalidOggException.class, () -> OggSeekIndex.load(file));
+        assertEquals("Not an Ogg seek index", exception.getMessage());
+    }
+
+    private static byte[] createMultiplexedPages(int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Random random = new Random(7);
+        for (int i = 0; i < count; i++) {
+            OggPage oggPage = OggPage.empty();
+            oggPage.setSerialNum(1);
+            oggPage.setSeqNum(i);
+            if (i % 7 == 3) {
+                oggPage.setGranulePosition(-1);
+                oggPage.addPartialDataPacket(TestUtil.createBinary(255 * 2, (byte) i));
+            } else {
+                oggPage.setGranulePosition((i + 1) * 1000L);
+                oggPage.addDataPacket(TestUtil.createBinary(random.nextInt(3000), (byte) i));
+            }
+            byte[] pageData = oggPage.dump();
+            out.write(pageData, 0, pageData.length);
+            if (i % 4 == 0) {
+                OggPage otherPage = OggPage.empty();
+                otherPage.setSerialNum(2);
+                otherPage.setGranulePosition(i * 1000L);
+                otherPage.addDataPacket(TestUtil.createBinary(random.nextInt(2000), (byte) 2));
+                pageData = otherPage.dump();
+                out.write(pageData, 0, pageData.length);
+            }
+        }
+        return out.toByteArray();
+    }
+}
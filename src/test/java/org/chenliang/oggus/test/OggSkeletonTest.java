@@ -0,0 +1,210 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.ogg.CheckSumPolicy;
+import org.chenliang.oggus.ogg.InvalidOggException;
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggSeekIndex;
+import org.chenliang.oggus.ogg.OggSkeleton;
+import org.chenliang.oggus.ogg.OggStream;
+import org.chenliang.oggus.opus.Channel;
+import org.chenliang.oggus.opus.CommentHeader;
+import org.chenliang.oggus.opus.Config;
+import org.chenliang.oggus.opus.IdHeader;
+import org.chenliang.oggus.opus.OggOpusStream;
+import org.chenliang.oggus.opus.OpusPacket;
+import org.chenliang.oggus.opus.OpusPackets;
+import org.chenliang.oggus.util.Bytes;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggSkeletonTest {
+    private static final int PAGE_COUNT = 300;
+
+    @Test
+    void should_write_skeleton_index_and_seek_with_it() throws IOException {
+        Path source = createOpusFile();
+        Path target = TestUtil.createFile();
+        OggSkeleton.writeIndexed(source, target, 4096);
+
+        try (OggStream oggStream = OggStream.map(target)) {
+            OggPage fisheadPage = oggStream.readPage();
+            assertTrue(fisheadPage.isBOS());
+            assertEquals(1, oggStream.readPage().getSerialNum());
+            OggSkeleton skeleton = oggStream.readSkeleton();
+            assertNotNull(skeleton);
+            assertTrue(skeleton.isCompleted());
+            assertEquals(4, skeleton.getVersionMajor());
+            assertEquals(Files.size(target), skeleton.getSegmentLength());
+            assertEquals(48000, skeleton.getGranuleRateNumerator(1));
+            assertEquals(2, skeleton.getHeaderCount(1));
+            assertEquals("Content-Type: audio/opus\r\n", skeleton.getMessageHeaders(1));
+            int keypointCount = skeleton.getKeypointCount(1);
+            assertTrue(keypointCount > 10 && keypointCount < PAGE_COUNT / 2);
+            assertEquals(skeleton.getContentOffset(), skeleton.getKeypointOffset(1, 0));
+            assertEquals(0, skeleton.getKeypointTime(1, 0));
+
+            OggSeekIndex seekIndex = oggStream.getSeekIndex();
+            assertNotNull(seekIndex);
+            assertEquals(keypointCount, seekIndex.getKeypointCount(1));
+
+            // The pages of the source are shifted by the Skeleton pages
+            long shift = Files.size(target) - Files.size(source);
+            try (OggStream sourceStream = OggStream.map(source)) {
+                for (long granulePosition : new long[]{1, 960 * 100 + 1, 960 * 200 + 480, 960 * 299 + 1}) {
+                    assertEquals(sourceStream.seekToGranule(1, granulePosition),
+                            oggStream.seekToGranule(1, granulePosition));
+                    assertEquals(sourceStream.getPosition() + shift, oggStream.getPosition());
+                }
+            }
+            oggStream.seek(skeleton.getContentOffset());
+            assertNotEquals(0, oggStream.readPage().getGranulePosition());
+        }
+    }
+
+    @Test
+    void should_read_opus_stream_after_skeleton_stream() throws IOException {
+        Path source = createOpusFile();
+        Path target = TestUtil.createFile();
+        OggSkeleton.writeIndexed(source, target, 1024);
+
+        try (OggOpusStream oggOpusStream = OggOpusStream.map(target)) {
+            assertEquals("test vendor", oggOpusStream.getCommentHeader().getVendor());
+            assertEquals(960 * 150, oggOpusStream.seekToGranule(960 * 150 + 1));
+            assertEquals((byte) 150, oggOpusStream.readAudioPacket().getOpusPackets().get(0).getFrames().get(0)[0]);
+            assertEquals(0, oggOpusStream.seekToGranule(0));
+            assertEquals(0, oggOpusStream.readAudioPacket().getOpusPackets().get(0).getFrames().get(0)[0]);
+        }
+        assertThrows(InvalidOggException.class, () -> OggSkeleton.writeIndexed(target, source, 1024));
+    }
+
+    @Test
+    void should_start_content_after_comment_header_spanning_pages() throws IOException {
+        CommentHeader commentHeader = CommentHeader.emptyHeader();
+        commentHeader.setVendor("test vendor");
+        commentHeader.addTag("LYRICS", new String(TestUtil.createBinary(150000, (byte) 'a'), StandardCharsets.US_ASCII));
+        Path source = createOpusFile(commentHeader);
+        Path target = TestUtil.createFile();
+        OggSkeleton.writeIndexed(source, target, 4096);
+
+        try (OggStream oggStream = OggStream.map(target)) {
+            oggStream.readPage();
+            oggStream.readPage();
+            OggSkeleton skeleton = oggStream.readSkeleton();
+            assertEquals(2, skeleton.getHeaderCount(1));
+            assertEquals(skeleton.getContentOffset(), skeleton.getKeypointOffset(1, 0));
+            assertEquals(0, skeleton.getKeypointTime(1, 0));
+            oggStream.seek(skeleton.getContentOffset());
+            OggPage firstDataPage = oggStream.readPage();
+            assertFalse(firstDataPage.isContinued());
+            assertEquals(960, firstDataPage.getGranulePosition());
+        }
+        try (OggOpusStream oggOpusStream = OggOpusStream.map(target)) {
+            assertEquals(150000, oggOpusStream.getCommentHeader().getTags().get("LYRICS").iterator().next().length());
+            assertEquals(0, oggOpusStream.readAudioPacket().getOpusPackets().get(0).getFrames().get(0)[0]);
+        }
+    }
+
+    @Test
+    void should_stop_reading_skeleton_at_content_when_eos_page_is_missing() throws IOException {
+        Path indexed = TestUtil.createFile();
+        OggSkeleton.writeIndexed(createOpusFile(), indexed, 4096);
+        List<byte[]> pages = new ArrayList<>();
+        try (OggStream oggStream = OggStream.map(indexed)) {
+            OggPage oggPage;
+            while ((oggPage = oggStream.readPage()) != null) {
+                if (oggPage.getSerialNum() == 1 || !oggPage.isEOS()) {
+                    pages.add(oggPage.dump());
+                }
+            }
+        }
+        byte[] lastPage = pages.get(pages.size() - 1);
+        lastPage[lastPage.length - 1] ^= 1;
+        Path target = TestUtil.createFile(pages);
+
+        try (OggStream oggStream = OggStream.map(target)) {
+            oggStream.setCheckSumPolicy(CheckSumPolicy.STRICT);
+            oggStream.readPage();
+            oggStream.readPage();
+            long position = oggStream.getPosition();
+            OggSkeleton skeleton = oggStream.readSkeleton();
+            assertFalse(skeleton.isCompleted());
+            assertEquals(2, skeleton.getHeaderCount(1));
+            assertTrue(skeleton.getKeypointCount(1) > 10);
+            assertEquals(position, oggStream.getPosition());
+        }
+    }
+
+    @Test
+    void should_ignore_skeleton_index_of_another_file_size() throws IOException {
+        Path source = createOpusFile();
+        Path target = TestUtil.createFile();
+        OggSkeleton.writeIndexed(source, target, 4096);
+        byte[] page = OggPage.empty().dump();
+        Files.write(target, Bytes.concat(Files.readAllBytes(target), page));
+
+        try (OggStream oggStream = OggStream.map(target)) {
+            oggStream.readPage();
+            oggStream.readPage();
+            OggSkeleton skeleton = oggStream.readSkeleton();
+            assertArrayEquals(new long[]{1}, skeleton.getIndexedSerialNums());
+            assertEquals(null, oggStream.getSeekIndex());
+        }
+    }
+
+    private static Path createOpusFile() throws IOException {
+        CommentHeader commentHeader = CommentHeader.emptyHeader();
+        commentHeader.setVendor("test vendor");
+        return createOpusFile(commentHeader);
+    }
+
+    /**
+     * Create an Opus file, the comment header is split into pages of at most 255 * 255 bytes.
+     */
+    private static Path createOpusFile(CommentHeader commentHeader) throws IOException {
+        IdHeader idHeader = IdHeader.emptyHeader();
+        idHeader.setChannelCount(1);
+        OggPage idHeaderPage = TestUtil.createOggPage(1, 0, 0, idHeader.dump());
+        idHeaderPage.setBOS();
+        List<byte[]> pages = new ArrayList<>();
+        pages.add(idHeaderPage.dump());
+        byte[] commentData = commentHeader.dump();
+        int maxPayload = 255 * 255;
+        for (int offset = 0; offset < commentData.length; offset += maxPayload) {
+            OggPage oggPage = OggPage.empty();
+            oggPage.setSerialNum(1);
+            oggPage.setSeqNum(pages.size());
+            if (offset > 0) {
+                oggPage.setContinued();
+            }
+            if (commentData.length - offset > maxPayload) {
+                oggPage.setGranulePosition(-1);
+                oggPage.addPartialDataPacket(Arrays.copyOfRange(commentData, offset, offset + maxPayload));
+            } else {
+                oggPage.addDataPacket(Arrays.copyOfRange(commentData, offset, commentData.length));
+            }
+            pages.add(oggPage.dump());
+        }
+        int firstSeqNum = pages.size();
+        pages.addAll(TestUtil.createPages(PAGE_COUNT, i -> {
+            OpusPacket opusPacket = OpusPackets.newPacket(Config.of(0), Channel.MONO, 0);
+            opusPacket.addFrame(TestUtil.createBinary(200, (byte) i));
+            return TestUtil.createOggPage(1, firstSeqNum + i, 960L * (i + 1), opusPacket.dumpToStandardFormat());
+        }));
+        return TestUtil.createFile(pages);
+    }
+}
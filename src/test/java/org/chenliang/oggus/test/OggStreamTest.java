@@ -1,18 +1,40 @@
 package org.chenliang.oggus.test;
 
+import org.chenliang.oggus.ogg.CheckSumPolicy;
+import org.chenliang.oggus.ogg.InvalidOggException;
 import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggPageHeader;
+import org.chenliang.oggus.ogg.OggPageView;
 import org.chenliang.oggus.ogg.OggStream;
 import org.chenliang.oggus.util.Bytes;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class OggStreamTest {
     @Test
@@ -106,6 +128,488 @@ class OggStreamTest {
         assertOggPageEquals(expectedPage, oggStream.readPage());
     }
 
+    @Test
+    void should_not_verify_checksum_by_default() throws IOException {
+        OggPage expectedPage = createOggPage();
+        byte[] data = corrupt(expectedPage.dump());
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+
+        assertEquals(CheckSumPolicy.TRUSTED, oggStream.getCheckSumPolicy());
+        assertEquals(expectedPage.getCheckSum(), oggStream.readPage().getCheckSum());
+        assertEquals(0, oggStream.getVerifiedPageCount());
+        assertEquals(0, oggStream.getFailedPageCount());
+    }
+
+    @Test
+    void should_throw_exception_when_checksum_mismatch_with_strict_policy() throws IOException {
+        OggPage expectedPage = createOggPage();
+        byte[] data = Bytes.concat(expectedPage.dump(), corrupt(expectedPage.dump()));
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        oggStream.setCheckSumPolicy(CheckSumPolicy.STRICT);
+
+        assertOggPageEquals(expectedPage, oggStream.readPage());
+        InvalidOggException exception = assertThrows(InvalidOggException.class, oggStream::readPage);
+
+        assertEquals("Ogg page checksum mismatch", exception.getMessage());
+        assertEquals(1, oggStream.getVerifiedPageCount());
+        assertEquals(1, oggStream.getFailedPageCount());
+    }
+
+    @Test
+    void should_drop_page_when_checksum_mismatch_with_lenient_policy() throws IOException {
+        OggPage expectedPage1 = createOggPage();
+        OggPage expectedPage2 = createOggPage();
+        expectedPage2.setSeqNum(2);
+        byte[] data = Bytes.concat(corrupt(expectedPage1.dump()), expectedPage2.dump());
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        oggStream.setCheckSumPolicy(CheckSumPolicy.LENIENT);
+
+        assertOggPageEquals(expectedPage2, oggStream.readPage());
+        assertNull(oggStream.readPage());
+        assertEquals(1, oggStream.getVerifiedPageCount());
+        assertEquals(1, oggStream.getFailedPageCount());
+    }
+
+    @Test
+    void should_resync_inside_dropped_page_with_lenient_policy() throws IOException {
+        OggPage expectedPage = createOggPage();
+        byte[] fakeHeader = {'O', 'g', 'g', 'S', 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 2, 3, 4, 1,
+                (byte) 200};
+        byte[] data = Bytes.concat(fakeHeader, expectedPage.dump(), TestUtil.createBinary(200, (byte) 0));
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        oggStream.setCheckSumPolicy(CheckSumPolicy.LENIENT);
+
+        assertOggPageEquals(expectedPage, oggStream.readPage());
+        assertEquals(1, oggStream.getFailedPageCount());
+    }
+
+    @Test
+    void should_read_ogg_pages_from_mapped_file() throws IOException {
+        OggPage expectedPage1 = createOggPage();
+        expectedPage1.setBOS();
+        OggPage expectedPage2 = createOggPage();
+        expectedPage2.setSeqNum(2);
+        Path file = TestUtil.createFile("junk".getBytes(), expectedPage1.dump(), expectedPage2.dump());
+
+        try (OggStream oggStream = OggStream.map(file)) {
+            oggStream.setCheckSumPolicy(CheckSumPolicy.STRICT);
+            OggPageView view = oggStream.readPageView();
+            assertEquals(4, view.getIndex());
+            assertOggPageEquals(expectedPage1, view.toOggPage());
+            assertOggPageEquals(expectedPage2, oggStream.readPage());
+            assertNull(oggStream.readPage());
+            assertEquals(Files.size(file), oggStream.getPosition());
+        }
+    }
+
+    @Test
+    void should_read_ogg_pages_from_channel_across_refills() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 100; i++) {
+            OggPage oggPage = OggPage.empty();
+            oggPage.setSeqNum(i);
+            oggPage.addDataPacket(TestUtil.createBinary(i * 100, (byte) i));
+            byte[] pageData = oggPage.dump();
+            out.write(pageData, 0, pageData.length);
+            out.write('O');
+        }
+
+        OggStream oggStream = OggStream.from(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+        oggStream.setCheckSumPolicy(CheckSumPolicy.STRICT);
+        for (int i = 0; i < 100; i++) {
+            OggPage oggPage = oggStream.readPage();
+            assertEquals(i, oggPage.getSeqNum());
+            assertEquals(i * 100, oggPage.getDataPackets().get(0).length);
+        }
+        assertNull(oggStream.readPage());
+        assertEquals(100, oggStream.getVerifiedPageCount());
+    }
+
+    @Test
+    void should_report_offsets_in_file_of_positioned_channel() throws IOException {
+        byte[] prefix = TestUtil.createBinary(100, (byte) 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(prefix, 0, prefix.length);
+        for (int i = 0; i < 10; i++) {
+            OggPage oggPage = OggPage.empty();
+            oggPage.setSerialNum(1);
+            oggPage.setSeqNum(i);
+            oggPage.setGranulePosition(i * 100L);
+            oggPage.addDataPacket(TestUtil.createBinary(1000, (byte) i));
+            byte[] pageData = oggPage.dump();
+            out.write(pageData, 0, pageData.length);
+        }
+        Path file = TestUtil.createFile(out.toByteArray());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(prefix.length);
+            OggStream oggStream = OggStream.from(channel);
+            assertEquals(prefix.length, oggStream.getPosition());
+            OggPageHeader header = oggStream.skimPage();
+            assertEquals(prefix.length, header.getOffset());
+            assertEquals(300, oggStream.seekToGranule(1, 350));
+            assertEquals(prefix.length + 4 * header.getPageSize(), oggStream.getPosition());
+            assertEquals(4, oggStream.readPage().getSeqNum());
+        }
+    }
+
+    @Test
+    void should_read_ogg_pages_into_reused_page() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<byte[]> pages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            OggPage oggPage = OggPage.empty();
+            oggPage.setSeqNum(i);
+            oggPage.addDataPacket(TestUtil.createBinary((20 - i) * 100, (byte) i));
+            oggPage.addDataPacket(TestUtil.createBinary(i, (byte) i));
+            byte[] pageData = oggPage.dump();
+            pages.add(pageData);
+            out.write(pageData, 0, pageData.length);
+        }
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(out.toByteArray()));
+        OggPage reuse = OggPage.empty();
+        for (int i = 0; i < 20; i++) {
+            assertSame(reuse, oggStream.readPage(reuse));
+            assertEquals(i, reuse.getSeqNum());
+            assertEquals(2, reuse.getPacketCount());
+            assertEquals((20 - i) * 100, reuse.getPacketOffset(1));
+            assertEquals(i, reuse.getPacketLength(1));
+            assertArrayEquals(TestUtil.createBinary(i, (byte) i), reuse.getDataPackets().get(1));
+            assertArrayEquals(pages.get(i), reuse.dump());
+        }
+        assertNull(oggStream.readPage(reuse));
+    }
+
+    @Test
+    void should_recover_from_damaged_data_in_recovery_mode() throws IOException {
+        OggPage oggPage1 = createOggPage();
+        OggPage oggPage2 = createOggPage();
+        oggPage2.setSeqNum(2);
+        byte[] junk = Bytes.concat("abcOggS".getBytes(), TestUtil.createBinary(30, (byte) 'x'));
+        byte[] badVersionPage = createOggPage().dump();
+        badVersionPage[4] = 1;
+        byte[] data = Bytes.concat(oggPage1.dump(), junk, badVersionPage, oggPage2.dump());
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        oggStream.setRecovery(true);
+        assertOggPageEquals(oggPage1, oggStream.readPage());
+        assertOggPageEquals(oggPage2, oggStream.readPage());
+        assertNull(oggStream.readPage());
+        assertEquals(junk.length + badVersionPage.length, oggStream.getSkippedByteCount());
+        assertEquals(1, oggStream.getResyncCount());
+        assertEquals(2, oggStream.getAbandonedPageCount());
+    }
+
+    @Test
+    void should_keep_reading_after_unsupported_version() throws IOException {
+        OggPage oggPage = createOggPage();
+        byte[] badVersionPage = createOggPage().dump();
+        badVersionPage[4] = 1;
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(Bytes.concat(badVersionPage, oggPage.dump())));
+        assertThrows(InvalidOggException.class, oggStream::readPage);
+        assertOggPageEquals(oggPage, oggStream.readPage());
+        assertEquals(1, oggStream.getAbandonedPageCount());
+    }
+
+    @Test
+    void should_bound_resync_distance() throws IOException {
+        OggPage oggPage1 = createOggPage();
+        OggPage oggPage2 = createOggPage();
+        oggPage2.setSeqNum(2);
+        byte[] pageData1 = oggPage1.dump();
+        byte[] data = Bytes.concat(pageData1, TestUtil.createBinary(1000, (byte) 'x'), oggPage2.dump());
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        oggStream.setMaxResyncDistance(600);
+        assertOggPageEquals(oggPage1, oggStream.readPage());
+        assertThrows(InvalidOggException.class, oggStream::readPage);
+        assertEquals(pageData1.length + 601, oggStream.getPosition());
+        assertOggPageEquals(oggPage2, oggStream.readPage());
+        assertEquals(1000, oggStream.getSkippedByteCount());
+        assertEquals(2, oggStream.getResyncCount());
+    }
+
+    @Test
+    void should_find_page_at_max_resync_distance_across_window_refills() throws IOException {
+        OggPage oggPage1 = createOggPage();
+        OggPage oggPage2 = createOggPage();
+        oggPage2.setSeqNum(2);
+        byte[] pageData1 = oggPage1.dump();
+        byte[] pageData2 = oggPage2.dump();
+        // The stream is read in 16 KB blocks, the capture pattern of the second page straddles some of them
+        for (int blockEnd : new int[]{16 * 1024, 32 * 1024}) {
+            int from = blockEnd - pageData1.length - 8;
+            for (int junkLength = from; junkLength <= from + 16; junkLength++) {
+                byte[] data = Bytes.concat(pageData1, TestUtil.createBinary(junkLength, (byte) 'x'), pageData2);
+                OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+                oggStream.setMaxResyncDistance(junkLength);
+                assertOggPageEquals(oggPage1, oggStream.readPage());
+                assertOggPageEquals(oggPage2, oggStream.readPage());
+                assertEquals(junkLength, oggStream.getSkippedByteCount());
+            }
+        }
+    }
+
+    @Test
+    void should_skim_page_headers_from_input_stream() throws IOException {
+        OggPage oggPage1 = createOggPage();
+        oggPage1.setBOS();
+        OggPage oggPage2 = createOggPage();
+        oggPage2.setSeqNum(2);
+        oggPage2.setGranulePosition(1000);
+        byte[] data = Bytes.concat("junk".getBytes(), oggPage1.dump(), "OggJ".getBytes(), oggPage2.dump());
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        OggPageHeader header1 = oggStream.skimPage();
+        assertEquals(4, header1.getOffset());
+        assertTrue(header1.isBOS());
+        assertFalse(header1.isCompleted());
+        assertEquals(257, header1.getGranulePosition());
+        assertEquals(1, header1.getSerialNum());
+        assertEquals(1, header1.getSeqNum());
+        assertEquals(oggPage1.getCheckSum(), header1.getCheckSum());
+        assertEquals(oggPage1.getSegCount(), header1.getSegCount());
+        assertEquals(456 + 255, header1.getPayloadLength());
+        assertEquals(oggPage1.getPageSize(), header1.getPageSize());
+
+        OggPageHeader header2 = oggStream.skimPage();
+        assertEquals(4 + oggPage1.getPageSize() + 4, header2.getOffset());
+        assertEquals(2, header2.getSeqNum());
+        assertEquals(1000, header2.getGranulePosition());
+        assertNull(oggStream.skimPage());
+        assertEquals(data.length, oggStream.getPosition());
+    }
+
+    @Test
+    void should_skim_page_headers_and_read_pages_from_seekable_file() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 20; i++) {
+            OggPage oggPage = OggPage.empty();
+            oggPage.setSeqNum(i);
+            oggPage.addDataPacket(TestUtil.createBinary(i * 3000, (byte) i));
+            byte[] pageData = oggPage.dump();
+            out.write(pageData, 0, pageData.length);
+        }
+        Path file = TestUtil.createFile(out.toByteArray());
+
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            long offset = 0;
+            for (int i = 0; i < 20; i += 2) {
+                OggPageHeader header = oggStream.skimPage();
+                assertEquals(offset, header.getOffset());
+                assertEquals(i, header.getSeqNum());
+                assertEquals(i * 3000, header.getPayloadLength());
+                offset += header.getPageSize();
+                OggPage oggPage = oggStream.readPage();
+                assertEquals(i + 1, oggPage.getSeqNum());
+                offset += oggPage.getPageSize();
+            }
+            assertNull(oggStream.skimPage());
+            assertEquals(Files.size(file), oggStream.getPosition());
+        }
+    }
+
+    @Test
+    void should_throw_exception_when_skimming_truncated_page() throws IOException {
+        byte[] pageData = createOggPage().dump();
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(Arrays.copyOf(pageData, pageData.length - 1)));
+        assertThrows(EOFException.class, oggStream::skimPage);
+    }
+
+    @Test
+    void should_throw_exception_when_skimming_truncated_page_from_file_input_stream() throws IOException {
+        OggPage oggPage = createOggPage();
+        oggPage.addDataPacket(TestUtil.createBinary(5000, (byte) 1));
+        byte[] pageData = oggPage.dump();
+        Path file = TestUtil.createFile(Arrays.copyOf(pageData, pageData.length - 1));
+
+        try (OggStream oggStream = OggStream.from(new FileInputStream(file.toFile()))) {
+            assertThrows(EOFException.class, oggStream::skimPage);
+        }
+    }
+
+    @Test
+    void should_seek_to_granule_position_in_multiplexed_file() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Random random = new Random(42);
+        List<Long> granulePositions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            OggPage oggPage = OggPage.empty();
+            oggPage.setSerialNum(1);
+            oggPage.setSeqNum(i);
+            if (i % 10 == 5) {
+                oggPage.setGranulePosition(-1);
+                oggPage.addPartialDataPacket(TestUtil.createBinary(255 * 4, (byte) i));
+            } else {
+                oggPage.setGranulePosition((i + 1) * 1000L);
+                oggPage.addDataPacket(TestUtil.createBinary(random.nextInt(5000), (byte) i));
+            }
+            granulePositions.add(oggPage.getGranulePosition());
+            byte[] pageData = oggPage.dump();
+            out.write(pageData, 0, pageData.length);
+            if (i % 3 == 0) {
+                OggPage otherPage = OggPage.empty();
+                otherPage.setSerialNum(2);
+                otherPage.setGranulePosition(i * 1000L + 1);
+                otherPage.addDataPacket(TestUtil.createBinary(random.nextInt(3000), (byte) 2));
+                pageData = otherPage.dump();
+                out.write(pageData, 0, pageData.length);
+            }
+        }
+        Path file = TestUtil.createFile(out.toByteArray());
+
+        try (OggStream oggStream = OggStream.map(file)) {
+            for (long target : new long[]{0, 1, 999, 1000, 1001, 5500, 6000, 6001, 150000, 299999, 300000, 500000}) {
+                long expectedBefore = -1;
+                int expectedSeqNum = 0;
+                for (int i = 0; i < granulePositions.size(); i++) {
+                    long granulePosition = granulePositions.get(i);
+                    if (granulePosition != -1 && granulePosition < target) {
+                        expectedBefore = granulePosition;
+                        expectedSeqNum = i + 1;
+                    }
+                }
+                assertEquals(expectedBefore, oggStream.seekToGranule(1, target));
+                OggPage oggPage = oggStream.readPage(1);
+                if (expectedSeqNum == granulePositions.size()) {
+                    assertNull(oggPage);
+                } else {
+                    assertEquals(expectedSeqNum, oggPage.getSeqNum());
+                }
+            }
+        }
+    }
+
+    @Test
+    void should_seek_back_with_keypoints_recorded_while_reading() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            OggPage oggPage = OggPage.empty();
+            oggPage.setSerialNum(i % 5 == 0 ? 2 : 1);
+            oggPage.setSeqNum(i);
+            oggPage.setGranulePosition(i * 100L);
+            oggPage.addDataPacket(TestUtil.createBinary(random.nextInt(2000), (byte) i));
+            byte[] pageData = oggPage.dump();
+            out.write(pageData, 0, pageData.length);
+        }
+        Path file = TestUtil.createFile(out.toByteArray());
+
+        for (int maxKeypoints : new int[]{16, 1000}) {
+            try (OggStream recording = OggStream.from(file.toString()); OggStream searching = OggStream.map(file)) {
+                recording.setKeypointRecording(maxKeypoints);
+                while (recording.readPage() != null) {
+                    assertTrue(recording.getRecordedKeypointCount(1) <= maxKeypoints);
+                }
+                assertTrue(recording.getRecordedKeypointCount(1) >= 8);
+                assertTrue(recording.getRecordedKeypointCount(2) >= 8);
+
+                for (long target = 0; target < 52000; target += 1234) {
+                    assertEquals(searching.seekToGranule(1, target), recording.seekToGranule(1, target));
+                    assertEquals(searching.getPosition(), recording.getPosition());
+                }
+            }
+        }
+    }
+
+    @Test
+    void should_not_seek_in_input_stream() {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(createOggPage().dump()));
+        assertFalse(oggStream.isSeekable());
+        assertThrows(UnsupportedOperationException.class, () -> oggStream.seekToGranule(1, 1000));
+    }
+
+    @Test
+    void should_read_ogg_pages_from_slow_input_stream_with_read_ahead() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 50; i++) {
+            OggPage oggPage = OggPage.empty();
+            oggPage.setSeqNum(i);
+            oggPage.addDataPacket(TestUtil.createBinary(i * 1000, (byte) i));
+            byte[] pageData = oggPage.dump();
+            out.write(pageData, 0, pageData.length);
+        }
+        InputStream slowInputStream = new FilterInputStream(new ByteArrayInputStream(out.toByteArray())) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 10000));
+            }
+        };
+
+        try (OggStream oggStream = OggStream.from(slowInputStream, 2)) {
+            oggStream.setCheckSumPolicy(CheckSumPolicy.STRICT);
+            for (int i = 0; i < 50; i++) {
+                OggPage oggPage = oggStream.readPage();
+                assertEquals(i, oggPage.getSeqNum());
+                assertEquals(i * 1000, oggPage.getDataPackets().get(0).length);
+            }
+            assertNull(oggStream.readPage());
+        }
+    }
+
+    @Test
+    void should_throw_read_ahead_error_after_bytes_read_before() throws IOException {
+        byte[] pageData = createOggPage().dump();
+        InputStream failingInputStream = new SequenceInputStream(new ByteArrayInputStream(pageData),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("Connection reset");
+                    }
+                });
+
+        try (OggStream oggStream = OggStream.from(failingInputStream, 4)) {
+            assertOggPageEquals(createOggPage(), oggStream.readPage());
+            IOException exception = assertThrows(IOException.class, oggStream::readPage);
+            assertEquals("Connection reset", exception.getMessage());
+        }
+    }
+
+    @Test
+    void should_verify_pages_of_other_logical_streams_when_reading_by_serial_number() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 6; i++) {
+            OggPage oggPage = OggPage.empty();
+            oggPage.setSerialNum(i % 2 + 1);
+            oggPage.setSeqNum(i);
+            oggPage.addDataPacket(TestUtil.createBinary(100, (byte) i));
+            byte[] pageData = oggPage.dump();
+            if (i == 3) {
+                corrupt(pageData);
+            }
+            out.write(pageData, 0, pageData.length);
+        }
+        byte[] data = out.toByteArray();
+
+        OggStream lenient = OggStream.from(new ByteArrayInputStream(data));
+        lenient.setCheckSumPolicy(CheckSumPolicy.LENIENT);
+        assertEquals(0, lenient.readPage(1).getSeqNum());
+        assertEquals(2, lenient.readPage(1).getSeqNum());
+        assertEquals(4, lenient.readPage(1).getSeqNum());
+        assertNull(lenient.readPage(1));
+        assertEquals(1, lenient.getFailedPageCount());
+
+        OggStream strict = OggStream.from(new ByteArrayInputStream(data));
+        strict.setCheckSumPolicy(CheckSumPolicy.STRICT);
+        assertEquals(0, strict.readPage(1).getSeqNum());
+        assertEquals(2, strict.readPage(1).getSeqNum());
+        assertThrows(InvalidOggException.class, () -> strict.readPage(1));
+        assertEquals(4, strict.readPage(1).getSeqNum());
+
+        OggStream trusted = OggStream.from(new ByteArrayInputStream(data));
+        assertEquals(0, trusted.readPage(1).getSeqNum());
+        assertEquals(2, trusted.readPage(1).getSeqNum());
+        assertEquals(4, trusted.readPage(1).getSeqNum());
+        assertEquals(0, trusted.getFailedPageCount());
+    }
+
+    private static byte[] corrupt(byte[] pageData) {
+        pageData[pageData.length - 1] ^= 0x5a;
+        return pageData;
+    }
+
     private OggPage createOggPage() {
         OggPage oggPage = OggPage.empty();
         oggPage.setFlag(0x00);
@@ -0,0 +1,58 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggSync;
+import org.chenliang.oggus.util.Bytes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OggSyncTest {
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 5, 7, 8, 9, 63, 64, 100})
+    void should_find_capture_pattern_at_any_offset(int offset) {
+        byte[] data = Bytes.concat(TestUtil.createBinary(offset, (byte) 'O'), "OgOggOggSxxxxxxxx".getBytes());
+        int expected = offset + 5;
+
+        assertEquals(expected, OggSync.findCapturePattern(ByteBuffer.wrap(data), 0, data.length));
+        assertEquals(expected, OggSync.findCapturePattern(
+                ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN), 0, data.length));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data);
+        assertEquals(expected, OggSync.findCapturePattern(direct, 0, data.length));
+    }
+
+    @Test
+    void should_respect_search_range_and_limit() {
+        byte[] data = "xxOggSxxxxxxOggS".getBytes();
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        assertEquals(2, OggSync.findCapturePattern(buffer, 0, 3));
+        assertEquals(-1, OggSync.findCapturePattern(buffer, 0, 2));
+        assertEquals(12, OggSync.findCapturePattern(buffer, 3, data.length));
+
+        buffer.limit(15);
+        assertEquals(-1, OggSync.findCapturePattern(buffer, 3, data.length));
+    }
+
+    @Test
+    void should_find_first_valid_page() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.addDataPacket(TestUtil.createBinary(100, (byte) 1));
+        byte[] pageData = oggPage.dump();
+        byte[] corruptPageData = pageData.clone();
+        corruptPageData[pageData.length - 1] = 0;
+        byte[] badVersion = "OggS\u0001".getBytes();
+        byte[] data = Bytes.concat(badVersion, corruptPageData, pageData, "OggS".getBytes());
+
+        int expected = badVersion.length + corruptPageData.length;
+        assertEquals(expected, OggSync.findPage(ByteBuffer.wrap(data), 0, data.length));
+        assertEquals(-1, OggSync.findPage(ByteBuffer.wrap(data), expected + 1, data.length));
+    }
+}
@@ -0,0 +1,78 @@
+package org.chenliang.oggus.test;
+
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggVerificationReport;
+import org.chenliang.oggus.ogg.OggVerifier;
+import org.chenliang.oggus.util.Bytes;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggVerifierTest {
+    private final OggVerifier verifier = new OggVerifier(ForkJoinPool.commonPool(), OggPage.MAX_PAGE_SIZE);
+
+    @Test
+    void should_verify_valid_file_split_into_many_chunks() throws IOException {
+        Path file = TestUtil.createFile(createPages(0, 100));
+
+        OggVerificationReport report = verifier.verify(file);
+
+        assertTrue(report.isValid());
+        assertEquals(100, report.getPageCount());
+        assertEquals(Files.size(file), report.getFileSize());
+    }
+
+    @Test
+    void should_report_corrupt_page_and_junk() throws IOException {
+        byte[] pages1 = createPages(0, 40);
+        byte[] corruptPage = createOggPage(40).dump();
+        corruptPage[corruptPage.length - 1] ^= 1;
+        byte[] junk = "OggSjunk".getBytes();
+        byte[] pages2 = createPages(41, 40);
+        Path file = TestUtil.createFile(pages1, corruptPage, pages2, junk);
+
+        OggVerificationReport report = verifier.verify(file);
+        List<OggVerificationReport.Problem> problems = report.getProblems();
+
+        assertEquals(80, report.getPageCount());
+        assertEquals(3, problems.size());
+        assertEquals(OggVerificationReport.Type.CHECKSUM_MISMATCH, problems.get(0).getType());
+        assertEquals(pages1.length, problems.get(0).getOffset());
+        assertEquals(corruptPage.length, problems.get(0).getLength());
+        assertEquals(OggVerificationReport.Type.SEQUENCE_GAP, problems.get(1).getType());
+        assertEquals(pages1.length + corruptPage.length, problems.get(1).getOffset());
+        assertEquals(OggVerificationReport.Type.TRUNCATED_PAGE, problems.get(2).getType());
+        assertEquals(pages1.length + corruptPage.length + pages2.length, problems.get(2).getOffset());
+    }
+
+    @Test
+    void should_report_sequence_gap_and_granule_regression() throws IOException {
+        OggPage regressedPage = createOggPage(3);
+        regressedPage.setGranulePosition(1);
+        Path file = TestUtil.createFile(createPages(0, 2), createPages(5, 1), regressedPage.dump());
+
+        List<OggVerificationReport.Problem> problems = verifier.verify(file).getProblems();
+
+        assertEquals(3, problems.size());
+        assertEquals(OggVerificationReport.Type.SEQUENCE_GAP, problems.get(0).getType());
+        assertEquals(1, problems.get(0).getSerialNum());
+        assertEquals(OggVerificationReport.Type.SEQUENCE_GAP, problems.get(1).getType());
+        assertEquals(OggVerificationReport.Type.GRANULE_REGRESSION, problems.get(2).getType());
+    }
+
+    private static byte[] createPages(int firstSeqNum, int count) {
+        return Bytes.concat(TestUtil.createPages(count, i -> createOggPage(firstSeqNum + i)).toArray(new byte[0][]));
+    }
+
+    private static OggPage createOggPage(int seqNum) {
+        return TestUtil.createOggPage(1, seqNum, seqNum * 960L,
+                TestUtil.createBinary(2000 + seqNum * 97 % 3000, (byte) seqNum));
+    }
+}
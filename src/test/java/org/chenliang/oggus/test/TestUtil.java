@@ -1,8 +1,16 @@
 package org.chenliang.oggus.test;
 
+import org.chenliang.oggus.ogg.OggPage;
 import org.chenliang.oggus.opus.OpusPacket;
+import org.chenliang.oggus.util.Bytes;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -15,6 +23,40 @@ public class TestUtil {
         return frameData1;
     }
 
+    public static OggPage createOggPage(long serialNum, int seqNum, long granulePosition, byte[] dataPacket) {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setSerialNum(serialNum);
+        oggPage.setSeqNum(seqNum);
+        oggPage.setGranulePosition(granulePosition);
+        oggPage.addDataPacket(dataPacket);
+        return oggPage;
+    }
+
+    /**
+     * Dump the pages created by the factory for 0 to count - 1.
+     */
+    public static List<byte[]> createPages(int count, IntFunction<OggPage> pageFactory) {
+        List<byte[]> pages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            pages.add(pageFactory.apply(i).dump());
+        }
+        return pages;
+    }
+
+    public static Path createFile(List<byte[]> pages) throws IOException {
+        return createFile(pages.toArray(new byte[0][]));
+    }
+
+    /**
+     * Write the data to a temporary file, which is deleted on exit.
+     */
+    public static Path createFile(byte[]... data) throws IOException {
+        Path file = Files.createTempFile("oggus", ".ogg");
+        file.toFile().deleteOnExit();
+        Files.write(file, Bytes.concat(data));
+        return file;
+    }
+
     public static void assertOpusPacketEqual(OpusPacket expected, OpusPacket actual) {
         assertEquals(expected.getCode(), actual.getCode());
         assertEquals(expected.getConfig(), actual.getConfig());